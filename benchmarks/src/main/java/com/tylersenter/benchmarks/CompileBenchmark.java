@@ -0,0 +1,104 @@
+package com.tylersenter.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.PlanSnapshot;
+import com.tylersenter.pdf.ValidationBuilder;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.validations.FieldValidation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures turning configuration into validations: a single validation through
+ * {@link ValidationBuilder#build(String, JsonNode)}, a whole configuration through
+ * {@link ValidationPlan#compile(JsonNode)}, and a whole configuration file, parsed and compiled or
+ * read from a {@link PlanSnapshot}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompileBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class ValidationState {
+    @Param
+    public ValidationCase validation;
+
+    private JsonNode config;
+
+    @Setup
+    public void setup() {
+      config = validation.createConfig();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class PlanState {
+    @Param({"10", "100", "1000"})
+    public int fieldCount;
+
+    private JsonNode config;
+    private File configFile;
+
+    @Setup
+    public void setup() throws IOException {
+      ObjectNode validations = ValidationCase.REQUIRED.createValidations();
+      validations.setAll(ValidationCase.FORMAT_INTEGER.createValidations());
+      validations.setAll(ValidationCase.REGEX.createValidations());
+      validations.setAll(ValidationCase.ALLOW_LIST.createValidations());
+
+      config = Fixtures.createConfig(fieldCount, validations);
+
+      configFile = File.createTempFile("config", ".json");
+      new ObjectMapper().writeValue(configFile, config);
+      PlanSnapshot.write(ValidationPlan.compile(config), PlanSnapshot.identity(configFile), null,
+          PlanSnapshot.pathFor(configFile));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      Files.deleteIfExists(PlanSnapshot.pathFor(configFile));
+      Files.deleteIfExists(configFile.toPath());
+    }
+  }
+
+  @Benchmark
+  public FieldValidation buildValidation(ValidationState state) {
+    return ValidationBuilder.build(state.validation.getKey(), state.config);
+  }
+
+  @Benchmark
+  public ValidationPlan compilePlan(PlanState state) {
+    return ValidationPlan.compile(state.config);
+  }
+
+  @Benchmark
+  public ValidationPlan compileConfigFile(PlanState state) throws IOException {
+    return ValidationPlan.compile(new ObjectMapper().readTree(state.configFile));
+  }
+
+  @Benchmark
+  public ValidationPlan readPlanSnapshot(PlanState state) {
+    return PlanSnapshot.read(PlanSnapshot.pathFor(state.configFile), state.configFile, null,
+        Metrics.DISABLED);
+  }
+}
@@ -0,0 +1,75 @@
+package com.tylersenter.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.reporting.Report;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a document going through the pipeline: extracting the fields of a generated form into a
+ * {@link FormBinding}, validating an already extracted form, and both together as the command line
+ * does for every file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DocumentBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int fieldCount;
+
+  @Param({"1", "20"})
+  public int sizeMegabytes;
+
+  private File pdf;
+  private ValidationPlan plan;
+  private FormBinding binding;
+
+  @Setup
+  public void setup() throws Exception {
+    pdf = Fixtures.createForm(fieldCount, sizeMegabytes);
+
+    // Every validation passes on the generated values, except the list which rejects most of them
+    ObjectNode validations = ValidationCase.FORMAT_INTEGER.createValidations();
+    validations.setAll(ValidationCase.REGEX.createValidations());
+    validations.setAll(ValidationCase.ALLOW_LIST.createValidations());
+    plan = ValidationPlan.compile(Fixtures.createConfig(fieldCount, validations));
+
+    binding = new FormBinding(plan);
+    binding.loadFieldsFromFile(pdf);
+  }
+
+  @Benchmark
+  public FormBinding loadFields() throws Exception {
+    FormBinding binding = new FormBinding(plan);
+    binding.loadFieldsFromFile(pdf);
+    return binding;
+  }
+
+  @Benchmark
+  public Report validateFields() {
+    return new Validator(plan, binding).validateAll();
+  }
+
+  @Benchmark
+  public Report loadAndValidate() throws Exception {
+    return new Validator(plan, pdf).validateAll();
+  }
+}
@@ -0,0 +1,175 @@
+package com.tylersenter.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.ValidationPlan;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDPageContentStream.AppendMode;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+
+/**
+ * Generates the PDFs and configurations the benchmarks run against. Documents hold a form of
+ * <code>fieldCount</code> text fields named <code>field0</code>, <code>field1</code>, ... and are
+ * padded with uncompressed page content until they reach the requested size, which mimics scanned
+ * forms with a tiny AcroForm and a lot of page data.
+ */
+public class Fixtures {
+  private static final int PAGE_CONTENT_BYTES = 4 * 1024 * 1024;
+  private static final int FIELDS_PER_PAGE = 25;
+
+  /**
+   * Create a temporary form. The file is deleted when the JVM exits.
+   *
+   * @param fieldCount number of text fields in the form
+   * @param sizeMegabytes approximate size of the document
+   */
+  public static File createForm(int fieldCount, int sizeMegabytes) throws IOException {
+    File file =
+        File.createTempFile("pdf-validator-" + fieldCount + "-" + sizeMegabytes + "mb-", ".pdf");
+    file.deleteOnExit();
+
+    Random random = new Random(fieldCount * 31L + sizeMegabytes);
+
+    try (PDDocument doc = new PDDocument()) {
+      PDAcroForm form = new PDAcroForm(doc);
+      doc.getDocumentCatalog().setAcroForm(form);
+
+      PDResources resources = new PDResources();
+      resources.put(COSName.getPDFName("Helv"), PDType1Font.HELVETICA);
+      form.setDefaultResources(resources);
+      form.setDefaultAppearance("/Helv 0 Tf 0 g");
+
+      PDPage page = null;
+      for (int i = 0; i < fieldCount; i++) {
+        if (i % FIELDS_PER_PAGE == 0) {
+          page = new PDPage();
+          doc.addPage(page);
+        }
+
+        PDTextField field = new PDTextField(form);
+        field.setPartialName(fieldName(i));
+
+        PDAnnotationWidget widget = field.getWidgets().get(0);
+        widget.setRectangle(new PDRectangle(50, 750 - (i % FIELDS_PER_PAGE) * 28, 300, 20));
+        widget.setPage(page);
+        page.getAnnotations().add(widget);
+        form.getFields().add(field);
+
+        field.setValue(String.valueOf(10000 + random.nextInt(90000)));
+      }
+
+      long padding = (long) sizeMegabytes * 1024 * 1024;
+      while (padding > 0) {
+        page = new PDPage();
+        doc.addPage(page);
+
+        int bytes = (int) Math.min(padding, PAGE_CONTENT_BYTES);
+        writePadding(doc, page, random, bytes);
+        padding -= bytes;
+      }
+
+      doc.save(file);
+    }
+
+    return file;
+  }
+
+  /**
+   * Build a configuration declaring every field of a fixture form, each with the given validations.
+   */
+  public static JsonNode createConfig(int fieldCount, ObjectNode validations) {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+
+    root.putObject("preferences").put("warnOnUnknownField", false);
+
+    ArrayNode fields = root.putArray("fields");
+    for (int i = 0; i < fieldCount; i++) {
+      ObjectNode field = fields.addObject();
+      field.put("name", fieldName(i));
+      field.put("type", "text");
+
+      if (validations != null) {
+        field.set("validations", validations.deepCopy());
+      }
+    }
+
+    return root;
+  }
+
+  /**
+   * Bind the given values to the fields of a plan compiled from
+   * {@link #createConfig(int, ObjectNode)}, without going through a PDF file. The value at index
+   * <code>i</code> is bound to <code>field{i}</code>.
+   */
+  public static FormBinding bindValues(ValidationPlan plan, List<String> values) throws IOException {
+    PDDocument doc = new PDDocument();
+    PDAcroForm form = new PDAcroForm(doc);
+    FormBinding binding = new FormBinding(plan);
+
+    for (int i = 0; i < values.size(); i++) {
+      PDTextField field = new PDTextField(form);
+      field.setPartialName(fieldName(i));
+      // Set the value directly, generating an appearance would need a font
+      field.getCOSObject().setString(COSName.V, values.get(i));
+      form.getFields().add(field);
+
+      binding.bindField(field);
+    }
+
+    doc.close();
+    return binding;
+  }
+
+  /**
+   * @return <code>count</code> random five digit values, the same ones for the same seed
+   */
+  public static List<String> randomValues(int count, long seed) {
+    Random random = new Random(seed);
+    List<String> values = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      values.add(String.valueOf(10000 + random.nextInt(90000)));
+    }
+    return values;
+  }
+
+  public static String fieldName(int index) {
+    return "field" + index;
+  }
+
+  private static void writePadding(PDDocument doc, PDPage page, Random random, int bytes)
+      throws IOException {
+    try (PDPageContentStream content =
+        new PDPageContentStream(doc, page, AppendMode.OVERWRITE, false)) {
+      StringBuilder line = new StringBuilder(80);
+      int written = 0;
+
+      while (written < bytes) {
+        line.setLength(0);
+        for (int i = 0; i < 70; i++) {
+          line.append((char) ('a' + random.nextInt(26)));
+        }
+        content.addComment(line.toString());
+        // addComment writes the leading '%' and the line break
+        written += line.length() + 2;
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.tylersenter.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.loading.FormLoader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the ways a large PDF can be read into a {@link FormBinding}: a full
+ * <code>PDDocument.load</code>, the form-only loader reading through a buffered stream, and the
+ * form-only loader reading a memory mapped file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoaderBenchmark {
+
+  @Param({"50"})
+  public int fieldCount;
+
+  @Param({"20", "200"})
+  public int sizeMegabytes;
+
+  private File pdf;
+  private ValidationPlan plan;
+  private FormLoader bufferedLoader;
+  private FormLoader mappedLoader;
+
+  @Setup
+  public void setup() throws Exception {
+    pdf = Fixtures.createForm(fieldCount, sizeMegabytes);
+    plan = ValidationPlan.compile(Fixtures.createConfig(fieldCount, null));
+    bufferedLoader = new FormLoader(MemoryUsageSetting.setupMainMemoryOnly(), false);
+    mappedLoader = new FormLoader(MemoryUsageSetting.setupMainMemoryOnly(), true);
+  }
+
+  @Benchmark
+  public void fullDocumentLoad(Blackhole blackhole) throws Exception {
+    try (PDDocument doc = PDDocument.load(pdf)) {
+      for (PDField field : doc.getDocumentCatalog().getAcroForm().getFields()) {
+        blackhole.consume(field.getValueAsString());
+      }
+    }
+  }
+
+  @Benchmark
+  public FormBinding formLoaderBuffered() throws Exception {
+    FormBinding binding = new FormBinding(plan);
+    bufferedLoader.load(pdf, binding);
+    return binding;
+  }
+
+  @Benchmark
+  public FormBinding formLoaderMapped() throws Exception {
+    FormBinding binding = new FormBinding(plan);
+    mappedLoader.load(pdf, binding);
+    return binding;
+  }
+}
@@ -0,0 +1,58 @@
+package com.tylersenter.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import com.tylersenter.pdf.FormField;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.misc.MessageTemplate;
+import com.tylersenter.pdf.misc.VariableUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a message, both parsing it on every call through
+ * {@link VariableUtils#replaceVariables(FormField, String)} and rendering a precompiled
+ * {@link MessageTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageBenchmark {
+
+  @Param({"The field is invalid.", "The field {{fieldName}} is invalid.",
+      "The value '{{fieldValue}}' of {{fieldName}} is not one of the allowed values."})
+  public String message;
+
+  private FormField field;
+  private MessageTemplate template;
+
+  @Setup
+  public void setup() throws Exception {
+    ValidationPlan plan = ValidationPlan.compile(Fixtures.createConfig(1, null));
+    field = Fixtures.bindValues(plan, Collections.singletonList("12345")).getFields()
+        .get(Fixtures.fieldName(0));
+    template = VariableUtils.compile(message);
+  }
+
+  @Benchmark
+  public String replaceVariables() {
+    return VariableUtils.replaceVariables(field, message);
+  }
+
+  @Benchmark
+  public String renderTemplate() {
+    return template.render(field);
+  }
+}
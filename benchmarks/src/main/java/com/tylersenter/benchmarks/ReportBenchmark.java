@@ -0,0 +1,91 @@
+package com.tylersenter.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.reporting.BinaryReportWriter;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.reporting.Report.ReportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing a finished report, as JSON and with the compact Smile and CBOR schema of
+ * {@link BinaryReportWriter}. A tenth of the fields have a warning, every other field has an
+ * error. The binary formats ignore the prettyPrint parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int fieldCount;
+
+  @Param({"false", "true"})
+  public boolean prettyPrint;
+
+  private Report report;
+  private ByteArrayOutputStream out;
+  private BinaryReportWriter smileWriter;
+  private BinaryReportWriter cborWriter;
+
+  @Setup
+  public void setup() throws IOException {
+    report = new Report();
+
+    for (int i = 0; i < fieldCount; i++) {
+      String name = Fixtures.fieldName(i);
+
+      if (i % 10 == 0) {
+        report.addWarning(name, "The field " + name + " should not be empty.");
+      } else {
+        report.addError(name, "The field " + name + " is invalid.");
+      }
+      report.next();
+    }
+    report.finish();
+
+    ValidationPlan plan = ValidationPlan.compile(
+        Fixtures.createConfig(fieldCount, JsonNodeFactory.instance.objectNode()));
+    out = new ByteArrayOutputStream();
+    smileWriter = new BinaryReportWriter(out, ReportType.SMILE, plan.getDependencyGraph());
+    cborWriter = new BinaryReportWriter(out, ReportType.CBOR, plan.getDependencyGraph());
+  }
+
+  @Benchmark
+  public String build() {
+    return report.build(ReportType.JSON, prettyPrint);
+  }
+
+  @Benchmark
+  public int smile() throws IOException {
+    return write(smileWriter);
+  }
+
+  @Benchmark
+  public int cbor() throws IOException {
+    return write(cborWriter);
+  }
+
+  private int write(BinaryReportWriter writer) throws IOException {
+    out.reset();
+    writer.write(report);
+    writer.flush();
+    return out.size();
+  }
+}
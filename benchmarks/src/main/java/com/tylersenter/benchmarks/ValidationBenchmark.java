@@ -0,0 +1,69 @@
+package com.tylersenter.benchmarks;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.FormField;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.validations.FieldValidation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single {@link FieldValidation} of every type against a passing and a failing value, at
+ * a report level without messages and at one with messages for every field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidationBenchmark {
+
+  @Param
+  public ValidationCase validation;
+
+  @Param({"true", "false"})
+  public boolean valid;
+
+  @Param({"EXIT_CODE", "ALL"})
+  public ReportLevel reportLevel;
+
+  private FieldValidation fieldValidation;
+  private FormField field;
+  private Map<String, FormField> fields;
+  private Preferences preferences;
+
+  @Setup
+  public void setup() throws Exception {
+    ValidationPlan plan =
+        ValidationPlan.compile(Fixtures.createConfig(1, validation.createValidations()));
+    FormBinding binding =
+        Fixtures.bindValues(plan, Collections.singletonList(validation.getValue(valid)));
+
+    fieldValidation = plan.getValidations(Fixtures.fieldName(0)).get(0);
+    field = binding.getFields().get(Fixtures.fieldName(0));
+    fields = binding.getFields();
+    preferences = plan.getPreferences();
+    preferences.setReportLevel(reportLevel);
+  }
+
+  @Benchmark
+  public boolean validate() {
+    return fieldValidation.validate(field, fields, new Report(), preferences);
+  }
+}
@@ -0,0 +1,83 @@
+package com.tylersenter.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One configuration for each validation type, with a field value passing it and one failing it.
+ * List validations hold {@link #LIST_SIZE} entries, <code>10000</code> to <code>10999</code>.
+ */
+public enum ValidationCase {
+  REQUIRED("required", "12345", ""),
+  FORMAT_INTEGER("format", "12345", "123"),
+  FORMAT_DECIMAL("format", "123.45", "12,3x"),
+  FORMAT_EMAIL("format", "someone@example.com", "someone@"),
+  ALLOW_LIST("allowList", "10500", "12345"),
+  DISALLOW_LIST("disallowList", "12345", "10500"),
+  WARN_LIST("warnList", "12345", "10500"),
+  REGEX("regex", "12345", "1234a");
+
+  public static final int LIST_SIZE = 1000;
+
+  private final String key;
+  private final String validValue;
+  private final String invalidValue;
+
+  private ValidationCase(String key, String validValue, String invalidValue) {
+    this.key = key;
+    this.validValue = validValue;
+    this.invalidValue = invalidValue;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getValue(boolean valid) {
+    return valid ? validValue : invalidValue;
+  }
+
+  /**
+   * @return the configuration of the validation, the value of its key in a field's validations
+   */
+  public JsonNode createConfig() {
+    JsonNodeFactory factory = JsonNodeFactory.instance;
+
+    switch (this) {
+      case REQUIRED:
+        return factory.booleanNode(true);
+      case FORMAT_INTEGER:
+        ObjectNode integer = factory.objectNode();
+        integer.put("value", "integer");
+        integer.put("minimum", 10000);
+        integer.put("maximum", 99999);
+        return integer;
+      case FORMAT_DECIMAL:
+        return factory.textNode("decimal");
+      case FORMAT_EMAIL:
+        return factory.textNode("email");
+      case ALLOW_LIST:
+      case DISALLOW_LIST:
+      case WARN_LIST:
+        ArrayNode list = factory.arrayNode();
+        for (int i = 0; i < LIST_SIZE; i++) {
+          list.add(String.valueOf(10000 + i));
+        }
+        return list;
+      case REGEX:
+        return factory.textNode("[0-9]{5}");
+    }
+    throw new IllegalStateException("No configuration for " + this);
+  }
+
+  /**
+   * @return a field's validations object holding only this validation
+   */
+  public ObjectNode createValidations() {
+    ObjectNode validations = JsonNodeFactory.instance.objectNode();
+    validations.set(key, createConfig());
+    return validations;
+  }
+}
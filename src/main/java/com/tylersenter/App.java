@@ -1,57 +1,596 @@
 package com.tylersenter;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.PlanSnapshot;
+import com.tylersenter.pdf.ValidationPlan;
 import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.batch.BatchResult;
+import com.tylersenter.pdf.batch.BatchValidator;
+import com.tylersenter.pdf.batch.BatchValidator.ResultOrder;
+import com.tylersenter.pdf.cache.ResultCache;
 import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.configurations.Preferences.FailFast;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+import com.tylersenter.pdf.incremental.SnapshotStore;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
+import com.tylersenter.pdf.reload.PlanReloader;
+import com.tylersenter.pdf.reload.PlanReloader.Revision;
+import com.tylersenter.pdf.reporting.BinaryReportWriter;
+import com.tylersenter.pdf.reporting.CompactReportWriter;
+import com.tylersenter.pdf.reporting.NdjsonReportSink;
 import com.tylersenter.pdf.reporting.Report;
 import com.tylersenter.pdf.reporting.Report.ReportType;
+import com.tylersenter.pdf.reporting.ReportSink;
+import com.tylersenter.pdf.server.ValidationServer;
+import com.tylersenter.pdf.summary.BatchSummary;
+import com.tylersenter.pdf.watch.SpoolWatcher;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 
 public class App {
 
+  private static final String USAGE = "Usage: ... [--parallelism N] [--max-in-flight N] "
+      + "[--field-parallelism N] [--order input|completion] [--output json|ndjson|smile|cbor] "
+      + "[--memory main|temp|mixed:MB] [--input buffered|mmap] [--metrics FILE|-] "
+      + "[--cache DIR] [--cache-size MB] [--incremental DIR] [--fail-fast off|errors|required] "
+      + "[--summary FILE|-] [--summary-top N] config.json files...\n"
+      + "       ... --serve PORT [--parallelism N] [--queue N] [--memory main|temp|mixed:MB] "
+      + "[--fail-fast off|errors|required] config.json...\n"
+      + "       ... --watch DIR [--results DIR] [--settle MS] [--parallelism N] "
+      + "[--memory main|temp|mixed:MB] [--input buffered|mmap] [--fail-fast off|errors|required] "
+      + "config.json\n"
+      + "       ... [--fail-fast off|errors|required] --compile-config config.json";
+
+  // Options that only apply to one mode, rejected in the others
+  private static final List<String> BATCH_OPTIONS = Arrays.asList("--max-in-flight",
+      "--field-parallelism", "--order", "--output", "--metrics", "--cache", "--cache-size",
+      "--incremental", "--summary", "--summary-top");
+  private static final List<String> SERVE_OPTIONS = Arrays.asList("--queue");
+  private static final List<String> WATCH_OPTIONS = Arrays.asList("--results", "--settle");
+
   public static void main(String[] args) throws Exception {
-    if (args.length < 2) {
-      System.err.println("Usage: ... config.json files...");
-      System.exit(1);
+    int parallelism = 1;
+    int maxInFlight = -1;
+    int fieldParallelism = 1;
+    ResultOrder order = ResultOrder.INPUT;
+    String output = "json";
+    MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMainMemoryOnly();
+    boolean memoryMapped = false;
+    String metricsTarget = null;
+    int servePort = -1;
+    int queueCapacity = 16;
+    String watchDir = null;
+    String resultsDir = null;
+    long settleMillis = SpoolWatcher.DEFAULT_SETTLE_MILLIS;
+    String cacheDir = null;
+    long cacheMegabytes = 512;
+    String snapshotDir = null;
+    FailFast failFast = null;
+    String summaryTarget = null;
+    int summaryTop = BatchSummary.DEFAULT_TOP_VALUES;
+    String compileConfig = null;
+
+    Set<String> options = new HashSet<>();
+    int argIndex = 0;
+    while (argIndex < args.length && args[argIndex].startsWith("--")) {
+      String option = args[argIndex++];
+      options.add(option);
+
+      if (argIndex >= args.length) {
+        usage("Missing value for option " + option);
+      }
+      String value = args[argIndex++];
+
+      switch (option) {
+        case "--parallelism":
+          parallelism = parseCount(option, value);
+          break;
+        case "--max-in-flight":
+          maxInFlight = parseCount(option, value);
+          break;
+        case "--field-parallelism":
+          fieldParallelism = parseCount(option, value);
+          break;
+        case "--order":
+          try {
+            order = ResultOrder.valueOf(value.toUpperCase());
+          } catch (IllegalArgumentException e) {
+            usage("Invalid value '" + value + "' for " + option + ". Valid values are "
+                + Arrays.toString(ResultOrder.values()));
+          }
+          break;
+        case "--output":
+          if (!Arrays.asList("json", "ndjson", "smile", "cbor").contains(value)) {
+            usage("Invalid value '" + value + "' for " + option
+                + ". Valid values are [json, ndjson, smile, cbor]");
+          }
+          output = value;
+          break;
+        case "--memory":
+          memoryUsage = parseMemoryUsage(option, value);
+          break;
+        case "--input":
+          if (!value.equals("buffered") && !value.equals("mmap")) {
+            usage("Invalid value '" + value + "' for " + option
+                + ". Valid values are [buffered, mmap]");
+          }
+          memoryMapped = value.equals("mmap");
+          break;
+        case "--metrics":
+          metricsTarget = value;
+          break;
+        case "--serve":
+          servePort = parseCount(option, value);
+          break;
+        case "--queue":
+          queueCapacity = parseCount(option, value);
+          break;
+        case "--watch":
+          watchDir = value;
+          break;
+        case "--results":
+          resultsDir = value;
+          break;
+        case "--settle":
+          settleMillis = parseCount(option, value);
+          break;
+        case "--cache":
+          cacheDir = value;
+          break;
+        case "--cache-size":
+          cacheMegabytes = parseCount(option, value);
+          break;
+        case "--incremental":
+          snapshotDir = value;
+          break;
+        case "--summary":
+          summaryTarget = value;
+          break;
+        case "--summary-top":
+          summaryTop = parseCount(option, value);
+          break;
+        case "--compile-config":
+          compileConfig = value;
+          break;
+        case "--fail-fast":
+          try {
+            failFast = FailFast.valueOf(value.toUpperCase());
+          } catch (IllegalArgumentException e) {
+            usage("Invalid value '" + value + "' for " + option + ". Valid values are "
+                + Arrays.toString(FailFast.values()));
+          }
+          break;
+        default:
+          usage("Unknown option " + option);
+      }
+    }
+
+    if (servePort > 0 && watchDir != null) {
+      usage("--serve and --watch cannot be combined");
+    }
+    if (servePort > 0 || watchDir != null) {
+      rejectOptions(options, BATCH_OPTIONS, "only applies to the validation of files");
+    }
+    if (servePort > 0) {
+      // Request bodies are always parsed from memory
+      rejectOptions(options, Arrays.asList("--input"), "does not apply to --serve");
+    }
+    if (servePort <= 0) {
+      rejectOptions(options, SERVE_OPTIONS, "only applies to --serve");
+    }
+    if (watchDir == null) {
+      rejectOptions(options, WATCH_OPTIONS, "only applies to --watch");
+    }
+
+    if (compileConfig != null) {
+      if (argIndex < args.length) {
+        usage("--compile-config takes no other files");
+      }
+      compileConfig(new File(compileConfig), failFast);
+      return;
+    }
+
+    if (args.length - argIndex < (servePort > 0 || watchDir != null ? 1 : 2)) {
+      usage(null);
     }
 
     Logger.getLogger("org.apache.pdfbox").setLevel(Level.SEVERE);
 
-    File configFile = new File(args[0]);
+    if (servePort > 0) {
+      serve(servePort, parallelism, queueCapacity, new FormLoader(memoryUsage),
+          failFast, Arrays.asList(args).subList(argIndex, args.length));
+      return;
+    }
+
+    File configFile = new File(args[argIndex]);
 
     if (!configFile.exists()) {
       System.err.println("Error: no configuration file found, should be named config.json");
       System.exit(1);
     }
-    ObjectMapper mapper = new ObjectMapper();
-    JsonNode rootConfig = mapper.readTree(configFile);
 
-    Validator validator;
-    Preferences prefs;
-    File pdf;
-    Report report;
-    for (int i = 1; i < args.length; i++) {
-      String arg = args[i];
-      pdf = new File(arg);
+    if (watchDir != null) {
+      watch(startReloader(configFile, failFast), Paths.get(watchDir),
+          resultsDir == null ? null : Paths.get(resultsDir), parallelism, settleMillis,
+          new FormLoader(memoryUsage, memoryMapped));
+      return;
+    }
+
+    final Metrics metrics = metricsTarget == null ? Metrics.DISABLED : new Metrics();
+    ValidationPlan plan =
+        PlanSnapshot.read(PlanSnapshot.pathFor(configFile), configFile, failFast, metrics);
+
+    if (plan == null) {
+      ObjectMapper mapper = new ObjectMapper();
+      JsonNode rootConfig = overrideFailFast(mapper.readTree(configFile), failFast);
+      plan = ValidationPlan.compile(rootConfig, metrics);
+    }
+    final Preferences prefs = plan.getPreferences();
+
+    List<File> pdfs = new ArrayList<>();
+    for (int i = argIndex + 1; i < args.length; i++) {
+      File pdf = new File(args[i]);
 
       if (!pdf.exists()) {
-        System.err.println("Error: file not found: " + arg);
+        System.err.println("Error: file not found: " + args[i]);
         System.exit(1);
       }
+      pdfs.add(pdf);
+    }
 
-      validator = new Validator(rootConfig, pdf);
-      prefs = validator.getPreferences();
+    if (maxInFlight < 0) {
+      maxInFlight = parallelism;
+    }
+    BatchValidator batch = new BatchValidator(plan, parallelism, maxInFlight, order);
+    FormLoader loader = new FormLoader(memoryUsage, memoryMapped);
+    loader.setMetrics(metrics);
+    batch.setFormLoader(loader);
+    batch.setMetrics(metrics);
 
-      report = validator.validateAll();
+    if (fieldParallelism > 1) {
+      batch.setFieldPool(new ForkJoinPool(fieldParallelism), Validator.DEFAULT_PARALLEL_THRESHOLD);
+    }
 
-      if (prefs.isSilent()) {
-        continue;
+    BatchSummary summary = null;
+    if (summaryTarget != null) {
+      // Cached and incremental documents are not validated field by field, so are not counted
+      if (cacheDir != null || snapshotDir != null) {
+        usage("--summary cannot be combined with --cache or --incremental");
       }
+      summary = new BatchSummary(plan, summaryTop);
+      batch.setValidationListener(summary);
+    }
+
+    if (snapshotDir != null) {
+      if (cacheDir != null) {
+        usage("--incremental cannot be combined with --cache");
+      }
+      if (prefs.getFailFast() != FailFast.OFF) {
+        usage("--incremental validates every field, fail fast must be off");
+      }
+      batch.setSnapshotStore(new SnapshotStore(Paths.get(snapshotDir)));
+    }
+
+    if (cacheDir != null) {
+      batch.setResultCache(new ResultCache(Paths.get(cacheDir), cacheMegabytes * 1024 * 1024));
+    }
+
+    ReportSink sink = null;
+    boolean printsEntries = prefs.getReportLevel().compareTo(ReportLevel.COMPACT) >= 0;
+    if (output.equals("ndjson") && !prefs.isSilent() && printsEntries) {
+      sink = new NdjsonReportSink(System.out);
+      batch.setReportSink(sink);
+    }
+
+    BinaryReportWriter binaryWriter = null;
+    if ((output.equals("smile") || output.equals("cbor")) && !prefs.isSilent() && printsEntries) {
+      binaryWriter = new BinaryReportWriter(System.out, ReportType.valueOf(output.toUpperCase()),
+          plan.getDependencyGraph());
+    }
+    final BinaryReportWriter binaryOutput = binaryWriter;
+
+    final CompactReportWriter compactWriter = prefs.getReportLevel() == ReportLevel.COMPACT
+        ? new CompactReportWriter(System.out, plan.getDependencyGraph()) : null;
+
+    int exitCode = batch.validate(pdfs, new BatchValidator.ResultHandler() {
+      public void handle(BatchResult result) {
+        if (prefs.isSilent()) {
+          return;
+        }
+
+        if (result.isFailure()) {
+          System.err.println("Error: failed to validate " + result.getFile() + ": "
+              + result.getFailure().getMessage());
+          return;
+        }
+
+        if (!result.getReport().isStreaming()) {
+          long start = metrics.start();
+          try {
+            if (binaryOutput != null) {
+              binaryOutput.write(result.getReport());
+            } else {
+              printReport(result.getReport(), prefs.getReportLevel(), compactWriter);
+            }
+          } catch (IOException e) {
+            System.err.println("Error: failed to write the report of " + result.getFile() + ": "
+                + e.getMessage());
+          }
+          metrics.record(Phase.SERIALIZE, start);
+        }
+      }
+    });
+
+    if (sink != null) {
+      sink.close();
+    }
+    if (binaryWriter != null) {
+      binaryWriter.close();
+    }
+    if (compactWriter != null) {
+      compactWriter.close();
+    }
+
+    if (metricsTarget != null) {
+      writeMetrics(metrics, metricsTarget);
+    }
+    if (summary != null) {
+      writeJson(summary.toJson(), summaryTarget);
+    }
+
+    if (exitCode == BatchResult.EXIT_INVALID && prefs.getReportLevel() == ReportLevel.NONE) {
+      exitCode = BatchResult.EXIT_VALID;
+    }
+    System.exit(exitCode);
+  }
+
+  /**
+   * Set the fail fast preference of a configuration before it is compiled, so that it is part of
+   * the plan's fingerprint and cached reports of another mode are not reused.
+   */
+  private static JsonNode overrideFailFast(JsonNode rootConfig, FailFast failFast) {
+    if (failFast == null || !rootConfig.isObject()) {
+      return rootConfig;
+    }
+
+    JsonNode preferences = rootConfig.get("preferences");
+    if (preferences == null || !preferences.isObject()) {
+      preferences = ((ObjectNode) rootConfig).putObject("preferences");
+    }
+    ((ObjectNode) preferences).put("failFast", failFast.name().toLowerCase());
+
+    return rootConfig;
+  }
+
+  /**
+   * Compile a configuration and save the plan next to it, where runs against the unchanged
+   * configuration read it instead of compiling the configuration again.
+   */
+  private static void compileConfig(File configFile, FailFast failFast) throws IOException {
+    if (!configFile.exists()) {
+      System.err.println("Error: configuration file not found: " + configFile);
+      System.exit(1);
+    }
+
+    long start = System.nanoTime();
+    // Taken before reading, so a change made while compiling makes the snapshot stale
+    String identity = PlanSnapshot.identity(configFile);
+    JsonNode rootConfig = overrideFailFast(new ObjectMapper().readTree(configFile), failFast);
+    ValidationPlan plan = ValidationPlan.compile(rootConfig);
+
+    Path target = PlanSnapshot.pathFor(configFile);
+    PlanSnapshot.write(plan, identity, failFast, target);
+    System.err.println("Compiled " + plan.getFieldTypes().size() + " fields into " + target
+        + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+
+  /**
+   * Compile a configuration and recompile it whenever it changes, until the JVM is stopped.
+   */
+  private static PlanReloader startReloader(File configFile, final FailFast failFast)
+      throws IOException {
+    final ObjectMapper mapper = new ObjectMapper();
+    PlanReloader reloader = new PlanReloader(configFile.toPath(), new PlanReloader.PlanCompiler() {
+      public ValidationPlan compile(Path path) throws IOException {
+        return ValidationPlan.compile(overrideFailFast(mapper.readTree(path.toFile()), failFast));
+      }
+    });
+
+    reloader.setReloadListener(new PlanReloader.ReloadListener() {
+      public void reloaded(Revision revision) {
+        System.err.println("Reloaded " + configFile + " as version " + revision.getVersion()
+            + " in " + revision.getCompileNanos() / 1000000 + " ms");
+      }
+
+      public void rejected(Path path, Exception e) {
+        System.err.println("Error: rejected the changes to " + path + ", keeping the current "
+            + "plan: " + e.getMessage());
+      }
+    });
+    reloader.start();
+
+    return reloader;
+  }
+
+  /**
+   * Compile every configuration and serve them until the JVM is stopped. Each configuration is
+   * served under its file name without the .json extension, and reloaded when it changes.
+   */
+  private static void serve(int port, int parallelism, int queueCapacity, FormLoader loader,
+      FailFast failFast, List<String> configPaths) throws IOException {
+    Map<String, PlanReloader> plans = new LinkedHashMap<>();
+
+    for (String path : configPaths) {
+      File configFile = new File(path);
+
+      if (!configFile.exists()) {
+        System.err.println("Error: configuration file not found: " + path);
+        System.exit(1);
+      }
+
+      String name = configFile.getName().replaceFirst("\\.json$", "");
+      if (plans.containsKey(name)) {
+        usage("More than one configuration is named '" + name + "'");
+      }
+      plans.put(name, startReloader(configFile, failFast));
+    }
+
+    final ValidationServer server = new ValidationServer(plans, parallelism, queueCapacity);
+    server.setFormLoader(loader);
+    server.start(port);
+
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        server.stop();
+      }
+    });
+
+    InetSocketAddress address = server.getAddress();
+    System.err.println("Listening on http://" + address.getHostString() + ":" + address.getPort()
+        + "/validate/ for " + plans.keySet());
+  }
+
+  /**
+   * Validate the PDFs dropped into a spool directory until the JVM is stopped.
+   */
+  private static void watch(final PlanReloader plans, Path spool, Path results, int parallelism,
+      long settleMillis, FormLoader loader) throws IOException, InterruptedException {
+    final SpoolWatcher watcher = new SpoolWatcher(plans, spool, results, parallelism);
+    watcher.setFormLoader(loader);
+    watcher.setSettleMillis(settleMillis);
+    watcher.setResultListener(new SpoolWatcher.ResultListener() {
+      public void handle(Path pdf, BatchResult result) {
+        if (plans.getPlan().getPreferences().isSilent()) {
+          return;
+        }
+
+        if (result.isFailure()) {
+          System.err.println("Error: failed to validate " + pdf + ": "
+              + result.getFailure().getMessage());
+        } else {
+          System.out.println(pdf + ": " + (result.getReport().hasErrors() ? "invalid" : "valid"));
+        }
+      }
+    });
+
+    // Let the documents being validated finish when the JVM is asked to stop
+    final Thread watchThread = Thread.currentThread();
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        watcher.stop();
+        try {
+          watchThread.join();
+        } catch (InterruptedException e) {
+          // exiting anyway
+        }
+      }
+    });
+
+    System.err.println("Watching " + spool);
+    watcher.run();
+  }
+
+  private static void printReport(Report report, ReportLevel level,
+      CompactReportWriter compactWriter) throws IOException {
+    switch (level) {
+      case NONE:
+      case EXIT_CODE:
+        return;
+      case COMPACT:
+        compactWriter.write(report);
+        return;
+      default:
+        System.out.println(report.build(ReportType.JSON, true));
+    }
+  }
+
+  /**
+   * Write the metrics of the batch as JSON to a file, or to stderr if the target is "-".
+   */
+  private static void writeMetrics(Metrics metrics, String target) throws IOException {
+    writeJson(metrics.snapshot().toJson(), target);
+  }
+
+  /**
+   * Write a JSON document to a file, or to stderr if the target is "-".
+   */
+  private static void writeJson(JsonNode node, String target) throws IOException {
+    String json = node.toPrettyString();
+
+    if (target.equals("-")) {
+      System.err.println(json);
+    } else {
+      Files.write(new File(target).toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static int parseCount(String option, String value) {
+    try {
+      int count = Integer.parseInt(value);
+
+      if (count > 0) {
+        return count;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+
+    usage("The value of " + option + " must be a positive integer");
+    return -1;
+  }
+
+  private static MemoryUsageSetting parseMemoryUsage(String option, String value) {
+    if (value.equals("main")) {
+      return MemoryUsageSetting.setupMainMemoryOnly();
+    }
+    if (value.equals("temp")) {
+      return MemoryUsageSetting.setupTempFileOnly();
+    }
+    if (value.startsWith("mixed:")) {
+      long megabytes = parseCount(option, value.substring("mixed:".length()));
+      return MemoryUsageSetting.setupMixed(megabytes * 1024 * 1024);
+    }
+
+    usage("Invalid value '" + value + "' for " + option
+        + ". Valid values are [main, temp, mixed:MB]");
+    return null;
+  }
+
+  private static void rejectOptions(Set<String> given, List<String> options, String reason) {
+    for (String option : options) {
+      if (given.contains(option)) {
+        usage(option + " " + reason);
+      }
+    }
+  }
 
-      System.out.println(report.build(ReportType.JSON, true));
+  private static void usage(String error) {
+    if (error != null) {
+      System.err.println("Error: " + error);
     }
+    System.err.println(USAGE);
+    System.exit(1);
   }
 }
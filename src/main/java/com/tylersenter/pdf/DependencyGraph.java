@@ -0,0 +1,208 @@
+package com.tylersenter.pdf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import com.tylersenter.pdf.FormField.FieldType;
+import com.tylersenter.pdf.validations.FieldValidation;
+import com.tylersenter.pdf.validations.RequiredValidation;
+
+/**
+ * The cross-field dependencies of a plan, resolved when the plan is compiled. Every declared field
+ * gets a slot, its position in the configuration, and every distinct <code>dependentKeys</code>
+ * condition becomes a {@link Condition} over slots, shared by all the validations using it. A
+ * {@link FormBinding} evaluates each condition at most once per document.
+ *
+ * Conditions only look at whether fields have a value, never at the outcome of their validations,
+ * so two fields may depend on each other (eg. "fill in both or neither"). A field depending on
+ * itself, or on a field that is not declared, is rejected.
+ *
+ * The graph also answers the reverse question, which fields have to be validated again when the
+ * value of a field changes, see {@link #getDependents(int)}.
+ */
+public class DependencyGraph {
+
+  /**
+   * Whether any, or all, of a set of fields have a value.
+   */
+  public static class Condition {
+    private final int index;
+    private final int[] slots;
+    private final boolean needsAll;
+
+    private Condition(int index, int[] slots, boolean needsAll) {
+      this.index = index;
+      this.slots = slots;
+      this.needsAll = needsAll;
+    }
+
+    /**
+     * @return the position of this condition in the graph, see
+     *         {@link DependencyGraph#getConditionCount()}
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public boolean isNeedsAll() {
+      return needsAll;
+    }
+
+    boolean evaluate(FormField[] fields) {
+      for (int slot : slots) {
+        if (fields[slot].hasValue() != needsAll) {
+          // A missing value fails "all", a present one satisfies "any"
+          return !needsAll;
+        }
+      }
+      return needsAll;
+    }
+  }
+
+  private static final int[] NO_DEPENDENTS = new int[0];
+
+  private final Map<String, Integer> slots;
+  private final String[] fieldNames;
+  private final List<Condition> conditions;
+  private final int[][] dependents;
+  private final boolean[] unknownDependencies;
+
+  private DependencyGraph(Map<String, Integer> slots, List<Condition> conditions,
+      int[][] dependents, boolean[] unknownDependencies) {
+    this.slots = Collections.unmodifiableMap(slots);
+    this.fieldNames = slots.keySet().toArray(new String[slots.size()]);
+    this.conditions = Collections.unmodifiableList(conditions);
+    this.dependents = dependents;
+    this.unknownDependencies = unknownDependencies;
+  }
+
+  /**
+   * Assign the slots and resolve the dependencies of every {@link RequiredValidation}.
+   *
+   * @throws IllegalArgumentException if a field depends on itself or on an undeclared field
+   */
+  static DependencyGraph build(Map<String, FieldType> fieldTypes,
+      Map<String, List<FieldValidation>> validations) {
+    Map<String, Integer> slots = new LinkedHashMap<>();
+    for (String fieldName : fieldTypes.keySet()) {
+      slots.put(fieldName, slots.size());
+    }
+
+    List<Condition> conditions = new ArrayList<>();
+    Map<String, Condition> conditionsByKey = new HashMap<>();
+    // Most fields have no dependents, their sets are only created when needed
+    List<Set<Integer>> dependentSets = new ArrayList<>(Collections.nCopies(slots.size(),
+        (Set<Integer>) null));
+    boolean[] unknownDependencies = new boolean[slots.size()];
+
+    for (Entry<String, List<FieldValidation>> entry : validations.entrySet()) {
+      for (FieldValidation validation : entry.getValue()) {
+        if (ValidationBuilder.isCustom(validation)) {
+          // Custom validations are handed every field and may read any of them
+          unknownDependencies[slots.get(entry.getKey())] = true;
+        }
+        if (!(validation instanceof RequiredValidation)) {
+          continue;
+        }
+
+        RequiredValidation required = (RequiredValidation) validation;
+        if (required.getDependencies().isEmpty()) {
+          continue;
+        }
+
+        int[] dependencySlots = new int[required.getDependencies().size()];
+        for (int i = 0; i < dependencySlots.length; i++) {
+          String dependency = required.getDependencies().get(i);
+
+          if (dependency.equals(entry.getKey())) {
+            throw new IllegalArgumentException(
+                "The field '" + entry.getKey() + "' cannot depend on itself");
+          }
+          if (!slots.containsKey(dependency)) {
+            throw new IllegalArgumentException("The field '" + entry.getKey()
+                + "' depends on the undeclared field '" + dependency + "'");
+          }
+          dependencySlots[i] = slots.get(dependency);
+          if (dependentSets.get(dependencySlots[i]) == null) {
+            dependentSets.set(dependencySlots[i], new TreeSet<Integer>());
+          }
+          dependentSets.get(dependencySlots[i]).add(slots.get(entry.getKey()));
+        }
+
+        String key = (required.isNeedsAll() ? "+" : "") + required.getDependencies();
+        Condition condition = conditionsByKey.get(key);
+        if (condition == null) {
+          condition = new Condition(conditions.size(), dependencySlots, required.isNeedsAll());
+          conditions.add(condition);
+          conditionsByKey.put(key, condition);
+        }
+        required.setCondition(condition);
+      }
+    }
+
+    int[][] dependents = new int[slots.size()][];
+    for (int slot = 0; slot < dependents.length; slot++) {
+      Set<Integer> dependentSet = dependentSets.get(slot);
+      if (dependentSet == null) {
+        dependents[slot] = NO_DEPENDENTS;
+        continue;
+      }
+
+      dependents[slot] = new int[dependentSet.size()];
+      int i = 0;
+      for (int dependent : dependentSet) {
+        dependents[slot][i++] = dependent;
+      }
+    }
+
+    return new DependencyGraph(slots, conditions, dependents, unknownDependencies);
+  }
+
+  /**
+   * @return the slot of a declared field, or -1 if the field is not declared
+   */
+  public int getSlot(String fieldName) {
+    Integer slot = slots.get(fieldName);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * @return the name of the field in the given slot
+   */
+  public String getFieldName(int slot) {
+    return fieldNames[slot];
+  }
+
+  /**
+   * @return the slots of the fields with a condition on the field in the given slot, in slot order
+   */
+  public int[] getDependents(int slot) {
+    return dependents[slot].clone();
+  }
+
+  /**
+   * @return whether the field in the given slot has a custom validation, which may read any other
+   *         field without declaring it
+   */
+  public boolean hasUnknownDependencies(int slot) {
+    return unknownDependencies[slot];
+  }
+
+  public int getFieldCount() {
+    return slots.size();
+  }
+
+  public int getConditionCount() {
+    return conditions.size();
+  }
+
+  public List<Condition> getConditions() {
+    return conditions;
+  }
+}
@@ -0,0 +1,149 @@
+package com.tylersenter.pdf;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import com.tylersenter.pdf.DependencyGraph.Condition;
+import com.tylersenter.pdf.FormField.FieldType;
+import com.tylersenter.pdf.loading.FormLoader;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+
+/**
+ * The per-document half of a validation run. A binding holds one {@link FormField} for every field
+ * declared in a {@link ValidationPlan}, populated with the values read from a single PDF.
+ */
+public class FormBinding {
+  private static final byte MET = 1;
+  private static final byte NOT_MET = 2;
+
+  private ValidationPlan plan;
+  private Map<String, FormField> fields;
+  private FormField[] slots;
+  // Per condition of the plan's dependency graph: 0 if not evaluated yet, else MET or NOT_MET
+  private byte[] conditionStates;
+  private boolean conditionsEvaluated;
+  private FormField rejectedField;
+
+  public FormBinding(ValidationPlan plan) {
+    DependencyGraph graph = plan.getDependencyGraph();
+
+    this.plan = plan;
+    this.fields = new LinkedHashMap<>();
+    this.slots = new FormField[graph.getFieldCount()];
+    this.conditionStates = new byte[graph.getConditionCount()];
+
+    for (Entry<String, FieldType> entry : plan.getFieldTypes().entrySet()) {
+      FormField field = new FormField(entry.getKey(), entry.getValue(), this);
+
+      fields.put(entry.getKey(), field);
+      slots[graph.getSlot(entry.getKey())] = field;
+    }
+  }
+
+  public ValidationPlan getPlan() {
+    return plan;
+  }
+
+  public Map<String, FormField> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return the always required field found empty while reading the form, if the preferences
+   *         prescreen required fields, or null. Reading stops at that field, so the other fields
+   *         may not be bound.
+   */
+  public FormField getRejectedField() {
+    return rejectedField;
+  }
+
+  public boolean isRejected() {
+    return rejectedField != null;
+  }
+
+  /**
+   * @return whether the condition holds for the values of this document. Each condition is
+   *         evaluated once, the first time it is asked for.
+   */
+  public boolean isMet(Condition condition) {
+    byte state = conditionStates[condition.getIndex()];
+
+    if (state == 0) {
+      // Racing threads compute and store the same value
+      state = condition.evaluate(slots) ? MET : NOT_MET;
+      conditionStates[condition.getIndex()] = state;
+      conditionsEvaluated = true;
+    }
+
+    return state == MET;
+  }
+
+  /**
+   * Evaluate every condition of the plan now, so that later calls to {@link #isMet(Condition)} only
+   * read.
+   */
+  public void evaluateConditions() {
+    for (Condition condition : plan.getDependencyGraph().getConditions()) {
+      isMet(condition);
+    }
+  }
+
+  public void loadFieldsFromFile(File pdf) throws Exception {
+    loadFieldsFromFile(pdf, new FormLoader());
+  }
+
+  public void loadFieldsFromFile(File pdf, FormLoader loader) throws Exception {
+    loader.load(pdf, this);
+  }
+
+  /**
+   * Copy the value of a field read from the document into the matching declared field. Fields that
+   * are not declared in the plan are skipped.
+   */
+  public void bindField(PDField field) {
+    String fieldName = field.getFullyQualifiedName();
+
+    if (!fields.containsKey(fieldName)) {
+      if (plan.getPreferences().warnOnUnknownField()) {
+        System.err.println("Unknown field: " + fieldName);
+      }
+      return;
+    }
+
+    FormField formField = fields.get(fieldName);
+    formField.setField(field);
+
+    if (rejectedField == null && !formField.hasValue()
+        && plan.getPreferences().prescreensRequiredFields() && plan.isAlwaysRequired(fieldName)) {
+      rejectedField = formField;
+    }
+
+    resetConditions();
+  }
+
+  /**
+   * Set the value of a declared field without reading it from a document, eg. a value stored by
+   * an earlier run.
+   *
+   * @throws IllegalArgumentException if the field is not declared in the plan
+   */
+  public void bindValue(String fieldName, String value) {
+    FormField formField = fields.get(fieldName);
+
+    if (formField == null) {
+      throw new IllegalArgumentException("The field '" + fieldName + "' is not declared");
+    }
+    formField.setValue(value);
+
+    resetConditions();
+  }
+
+  private void resetConditions() {
+    if (conditionsEvaluated) {
+      Arrays.fill(conditionStates, (byte) 0);
+      conditionsEvaluated = false;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.tylersenter.pdf;
 
+import java.math.BigDecimal;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
 import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
 import org.apache.pdfbox.pdmodel.interactive.form.PDField;
@@ -7,6 +8,18 @@ import org.apache.pdfbox.pdmodel.interactive.form.PDRadioButton;
 import org.apache.pdfbox.pdmodel.interactive.form.PDSignatureField;
 import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
 
+/**
+ * A declared field of the configuration and the value read for it from the document.
+ *
+ * Besides the raw string, the value is offered through typed views: trimmed, case-folded, as a
+ * long, as a double and as an exact decimal. Each view is computed the first time it is asked for
+ * and kept until the field is bound again, so every validation on a field shares a single
+ * conversion. The views are not synchronized; a field is meant to be validated by one thread.
+ *
+ * Numbers are plain decimal notation: an optional minus sign followed by digits, with an optional
+ * fraction for decimals. Leading or trailing whitespace, grouping separators and exponents are not
+ * numbers.
+ */
 public class FormField {
   public static enum FieldType {
     BUTTON("Btn"), TEXT("Tx"), SIGNATURE("Sig");
@@ -26,11 +39,35 @@ public class FormField {
   private FieldType fieldType;
   private PDField field;
   private String valueAsString;
+  private FormBinding binding;
+
+  // Bits of the views computed since the field was last bound
+  private static final int TRIMMED = 1;
+  private static final int FOLDED = 1 << 1;
+  private static final int TRIMMED_FOLDED = 1 << 2;
+  private static final int LONG = 1 << 3;
+  private static final int DOUBLE = 1 << 4;
+  private static final int DECIMAL = 1 << 5;
+
+  private int computedViews;
+  private String trimmedValue;
+  private String foldedValue;
+  private String trimmedFoldedValue;
+  private boolean isLong;
+  private long longValue;
+  private boolean isDouble;
+  private double doubleValue;
+  private BigDecimal decimalValue;
 
   public FormField(String name, FieldType fieldType) {
+    this(name, fieldType, null);
+  }
+
+  public FormField(String name, FieldType fieldType, FormBinding binding) {
     this.name = name;
     this.fieldType = fieldType;
     this.field = null;
+    this.binding = binding;
   }
 
   private void findValueAsString() {
@@ -58,6 +95,13 @@ public class FormField {
     return name;
   }
 
+  /**
+   * @return the binding this field belongs to, or null if it was created on its own
+   */
+  public FormBinding getBinding() {
+    return binding;
+  }
+
   public FieldType getFieldType() {
     return fieldType;
   }
@@ -73,6 +117,17 @@ public class FormField {
   public void setField(PDField field) {
     this.field = field;
     findValueAsString();
+    computedViews = 0;
+  }
+
+  /**
+   * Set a value known without its PDFBox field, eg. one stored by an earlier run.
+   * {@link #getField()} returns null afterwards.
+   */
+  public void setValue(String valueAsString) {
+    this.field = null;
+    this.valueAsString = valueAsString;
+    computedViews = 0;
   }
 
   public boolean isTextField() {
@@ -115,4 +170,173 @@ public class FormField {
   public String valueAsString() {
     return valueAsString;
   }
+
+  /**
+   * @return the value without leading and trailing whitespace, or null if there is no value
+   */
+  public String trimmedValue() {
+    if ((computedViews & TRIMMED) == 0) {
+      trimmedValue = valueAsString == null ? null : valueAsString.trim();
+      computedViews |= TRIMMED;
+    }
+    return trimmedValue;
+  }
+
+  /**
+   * @return the value case-folded with {@link #foldCase(String)}, or null if there is no value
+   */
+  public String foldedValue() {
+    if ((computedViews & FOLDED) == 0) {
+      foldedValue = valueAsString == null ? null : foldCase(valueAsString);
+      computedViews |= FOLDED;
+    }
+    return foldedValue;
+  }
+
+  /**
+   * @return the trimmed value case-folded with {@link #foldCase(String)}, or null if there is no
+   *         value
+   */
+  public String trimmedFoldedValue() {
+    if ((computedViews & TRIMMED_FOLDED) == 0) {
+      String trimmed = trimmedValue();
+      trimmedFoldedValue = trimmed == null ? null : foldCase(trimmed);
+      computedViews |= TRIMMED_FOLDED;
+    }
+    return trimmedFoldedValue;
+  }
+
+  /**
+   * @return whether the value is an integer in the range of a long
+   */
+  public boolean hasLongValue() {
+    if ((computedViews & LONG) == 0) {
+      parseLong();
+      computedViews |= LONG;
+    }
+    return isLong;
+  }
+
+  /**
+   * @throws IllegalStateException if the value is not an integer, see {@link #hasLongValue()}
+   */
+  public long longValue() {
+    if (!hasLongValue()) {
+      throw new IllegalStateException("The value of '" + name + "' is not an integer");
+    }
+    return longValue;
+  }
+
+  /**
+   * @return whether the value is a decimal number
+   */
+  public boolean hasDoubleValue() {
+    if ((computedViews & DOUBLE) == 0) {
+      isDouble = isDecimal(valueAsString);
+      doubleValue = isDouble ? Double.parseDouble(valueAsString) : 0;
+      computedViews |= DOUBLE;
+    }
+    return isDouble;
+  }
+
+  /**
+   * @return the value as the closest double, which may be infinite for huge values
+   * @throws IllegalStateException if the value is not a decimal number, see
+   *         {@link #hasDoubleValue()}
+   */
+  public double doubleValue() {
+    if (!hasDoubleValue()) {
+      throw new IllegalStateException("The value of '" + name + "' is not a decimal number");
+    }
+    return doubleValue;
+  }
+
+  /**
+   * @return the exact value, or null if the value is not a decimal number
+   */
+  public BigDecimal decimalValue() {
+    if ((computedViews & DECIMAL) == 0) {
+      decimalValue = isDecimal(valueAsString) ? new BigDecimal(valueAsString) : null;
+      computedViews |= DECIMAL;
+    }
+    return decimalValue;
+  }
+
+  private void parseLong() {
+    isLong = false;
+    longValue = 0;
+
+    String value = valueAsString;
+    if (value == null || value.isEmpty()) {
+      return;
+    }
+
+    boolean negative = value.charAt(0) == '-';
+    int start = negative ? 1 : 0;
+    if (start == value.length()) {
+      return;
+    }
+
+    // Accumulate negatively, since Long.MIN_VALUE has no positive counterpart
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+
+    for (int i = start; i < value.length(); i++) {
+      int digit = value.charAt(i) - '0';
+
+      if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+        return;
+      }
+      result = result * 10 - digit;
+    }
+
+    isLong = true;
+    longValue = negative ? result : -result;
+  }
+
+  private static boolean isDecimal(String value) {
+    if (value == null) {
+      return false;
+    }
+
+    int i = !value.isEmpty() && value.charAt(0) == '-' ? 1 : 0;
+    int digits = 0;
+    boolean point = false;
+
+    for (; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c >= '0' && c <= '9') {
+        digits++;
+      } else if (c == '.' && !point) {
+        point = true;
+      } else {
+        return false;
+      }
+    }
+
+    return digits > 0;
+  }
+
+  /**
+   * Fold a string so that two strings are equal after folding if and only if they are equal
+   * according to {@link String#equalsIgnoreCase(String)}.
+   */
+  public static String foldCase(String value) {
+    char[] chars = null;
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      char folded = Character.toLowerCase(Character.toUpperCase(c));
+
+      if (folded != c) {
+        if (chars == null) {
+          chars = value.toCharArray();
+        }
+        chars[i] = folded;
+      }
+    }
+
+    return chars == null ? value : new String(chars);
+  }
 }
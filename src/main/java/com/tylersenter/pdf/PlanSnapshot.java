@@ -0,0 +1,467 @@
+package com.tylersenter.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+import com.tylersenter.pdf.FormField.FieldType;
+import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.configurations.Preferences.FailFast;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
+import com.tylersenter.pdf.validations.AllowListValidation;
+import com.tylersenter.pdf.validations.DisallowListValidation;
+import com.tylersenter.pdf.validations.FieldValidation;
+import com.tylersenter.pdf.validations.FormatValidation;
+import com.tylersenter.pdf.validations.FormatValidation.FormatType;
+import com.tylersenter.pdf.validations.ListValidation;
+import com.tylersenter.pdf.validations.RegexValidation;
+import com.tylersenter.pdf.validations.RequiredValidation;
+import com.tylersenter.pdf.validations.RequiredValidation.Level;
+import com.tylersenter.pdf.validations.WarnListValidation;
+
+/**
+ * A compiled {@link ValidationPlan} saved to a binary file, so that short runs against large
+ * configurations do not parse the JSON, build a tree of it and hash it again on every start.
+ *
+ * The file starts with a table of every distinct string of the plan: field names, messages, list
+ * values, regular expressions and the class names of custom validations. The preferences and the
+ * fields follow, referring to strings by their index in the table. The file is read through a
+ * memory mapping in a single pass and the validations are created straight from their values;
+ * regular expressions are compiled and list indexes built again, which is cheap next to parsing.
+ *
+ * A snapshot records the length and modification time of the configuration file and of the
+ * dictionary files it uses, and the fail fast override it was compiled with. It is only used while
+ * they are all unchanged. Otherwise, or if it cannot be read, the configuration file is compiled.
+ */
+public class PlanSnapshot {
+  public static final String SUFFIX = ".plan";
+
+  private static final int MAGIC = 0x50564650;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String CUSTOM = "custom";
+
+  private static final byte BOOLEAN_PROPERTY = 0;
+  private static final byte LONG_PROPERTY = 1;
+  private static final byte DOUBLE_PROPERTY = 2;
+  private static final byte STRING_PROPERTY = 3;
+  private static final byte LIST_PROPERTY = 4;
+
+  private PlanSnapshot() {
+  }
+
+  /**
+   * @return the snapshot next to a configuration file, with the .json extension replaced
+   */
+  public static Path pathFor(File configFile) {
+    String name = configFile.getName().replaceFirst("\\.json$", "");
+    return configFile.toPath().resolveSibling(name + SUFFIX);
+  }
+
+  /**
+   * @return the length and modification time of a file, which a snapshot is checked against
+   */
+  public static String identity(File file) {
+    return file.length() + ":" + file.lastModified();
+  }
+
+  /**
+   * Write a snapshot of a plan atomically.
+   *
+   * @param configIdentity the identity of the configuration file, taken before it was read
+   * @param failFast the fail fast override the plan was compiled with, or null
+   */
+  public static void write(ValidationPlan plan, String configIdentity, FailFast failFast,
+      Path target) throws IOException {
+    Writer writer = new Writer();
+    writer.writeBody(plan);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(writer.body.size() + 1024);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    writeText(out, configIdentity);
+    writeText(out, failFast == null ? "" : failFast.name());
+    writeText(out, plan.getFingerprint());
+
+    Map<String, String> dictionaries = dictionaries(plan);
+    out.writeInt(dictionaries.size());
+    for (Entry<String, String> entry : dictionaries.entrySet()) {
+      writeText(out, entry.getKey());
+      writeText(out, entry.getValue());
+    }
+
+    out.writeInt(writer.strings.size());
+    for (String string : writer.strings.keySet()) {
+      writeText(out, string);
+    }
+    writer.body.writeTo(out);
+    out.flush();
+
+    Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), ".plan-", ".tmp");
+    try {
+      Files.write(temporary, bytes.toByteArray());
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Read a snapshot, timing it as the {@link Phase#COMPILE} phase.
+   *
+   * @param failFast the fail fast override of the run, or null
+   * @return the plan, or null if there is no snapshot, if it was taken from another version of the
+   *         configuration or with another override, or if it cannot be read
+   */
+  public static ValidationPlan read(Path snapshot, File configFile, FailFast failFast,
+      Metrics metrics) {
+    long start = metrics.start();
+    ByteBuffer buffer;
+
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException | IllegalArgumentException e) {
+      // Missing, unreadable, or too large to map at once
+      return null;
+    }
+
+    ValidationPlan plan;
+    try {
+      plan = new Reader(buffer).read(configFile, failFast);
+    } catch (RuntimeException e) {
+      // A damaged snapshot, or a custom validation that cannot be created any more
+      return null;
+    }
+
+    if (plan != null) {
+      metrics.record(Phase.COMPILE, start);
+    }
+    return plan;
+  }
+
+  private static void writeText(DataOutputStream out, String text) throws IOException {
+    byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+
+    out.writeInt(encoded.length);
+    out.write(encoded);
+  }
+
+  /**
+   * @return the identity of every dictionary file the plan uses, by absolute path
+   */
+  private static Map<String, String> dictionaries(ValidationPlan plan) {
+    Map<String, String> dictionaries = new LinkedHashMap<>();
+
+    for (String fieldName : plan.getFieldTypes().keySet()) {
+      for (FieldValidation validation : plan.getValidations(fieldName)) {
+        if (validation instanceof ListValidation
+            && ((ListValidation) validation).getDictionary() != null) {
+          File dictionary = ((ListValidation) validation).getDictionary().getFile();
+          dictionaries.put(dictionary.getAbsolutePath(), identity(dictionary));
+        }
+      }
+    }
+
+    return dictionaries;
+  }
+
+  /**
+   * @return the name of the validation in the configuration, or {@link #CUSTOM} for custom
+   *         validations
+   */
+  private static String kindOf(FieldValidation validation) {
+    if (ValidationBuilder.isCustom(validation)) {
+      return CUSTOM;
+    }
+
+    if (validation instanceof RequiredValidation) {
+      return "required";
+    } else if (validation instanceof FormatValidation) {
+      return "format";
+    } else if (validation instanceof AllowListValidation) {
+      return "allowList";
+    } else if (validation instanceof DisallowListValidation) {
+      return "disallowList";
+    } else if (validation instanceof WarnListValidation) {
+      return "warnList";
+    } else if (validation instanceof RegexValidation) {
+      return "regex";
+    }
+    throw new IllegalArgumentException(
+        "Validation " + validation.getClass().getName() + " cannot be saved");
+  }
+
+  private static class Writer {
+    private Map<String, Integer> strings = new LinkedHashMap<>();
+    private ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+    private DataOutputStream out = new DataOutputStream(body);
+
+    public void writeBody(ValidationPlan plan) throws IOException {
+      Preferences preferences = plan.getPreferences();
+      writeString(preferences.getValidMessage());
+      writeString(preferences.getInvalidMessage());
+      writeString(preferences.getReportLevel().name());
+      out.writeBoolean(preferences.isSilent());
+      out.writeBoolean(preferences.warnOnUnknownField());
+      writeString(preferences.getFailFast().name());
+
+      out.writeInt(plan.getFieldTypes().size());
+      for (Entry<String, FieldType> entry : plan.getFieldTypes().entrySet()) {
+        writeString(entry.getKey());
+        writeString(entry.getValue().name());
+
+        List<FieldValidation> validations = plan.getValidations(entry.getKey());
+        out.writeInt(validations.size());
+        for (FieldValidation validation : validations) {
+          writeValidation(validation);
+        }
+      }
+      out.flush();
+    }
+
+    private void writeValidation(FieldValidation validation) throws IOException {
+      String kind = kindOf(validation);
+
+      writeString(kind);
+      writeString(validation.getValidMessage());
+      writeString(validation.getInvalidMessage());
+
+      if (kind.equals(CUSTOM)) {
+        writeString(validation.getClass().getName());
+      } else if (validation instanceof RequiredValidation) {
+        writeString(((RequiredValidation) validation).getLevel().name());
+      } else if (validation instanceof FormatValidation) {
+        writeString(((FormatValidation) validation).getType().name());
+      } else if (validation instanceof ListValidation) {
+        writeStrings(((ListValidation) validation).getValues());
+      } else if (validation instanceof RegexValidation) {
+        Pattern pattern = ((RegexValidation) validation).getPattern();
+        writeString(pattern.pattern());
+        out.writeInt(pattern.flags());
+      }
+
+      Map<String, Object> properties = validation.getProperties();
+      out.writeInt(properties.size());
+      for (Entry<String, Object> entry : properties.entrySet()) {
+        writeString(entry.getKey());
+        writeProperty(entry.getKey(), entry.getValue());
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeProperty(String key, Object value) throws IOException {
+      if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN_PROPERTY);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE_PROPERTY);
+        out.writeDouble((Double) value);
+      } else if (value instanceof Long) {
+        out.writeByte(LONG_PROPERTY);
+        out.writeLong((Long) value);
+      } else if (value instanceof String) {
+        out.writeByte(STRING_PROPERTY);
+        writeString((String) value);
+      } else if (value instanceof List) {
+        out.writeByte(LIST_PROPERTY);
+        writeStrings((List<String>) value);
+      } else {
+        throw new IllegalArgumentException("Property '" + key + "' cannot be saved");
+      }
+    }
+
+    private void writeStrings(List<String> values) throws IOException {
+      out.writeInt(values.size());
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+
+    /**
+     * Write the index of a string in the table, -1 for null.
+     */
+    private void writeString(String value) throws IOException {
+      if (value == null) {
+        out.writeInt(-1);
+        return;
+      }
+
+      Integer index = strings.get(value);
+      if (index == null) {
+        index = strings.size();
+        strings.put(value, index);
+      }
+      out.writeInt(index);
+    }
+  }
+
+  private static class Reader {
+    private ByteBuffer buffer;
+    private String[] strings;
+
+    public Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * @return the plan, or null if the snapshot is not the one of the configuration file
+     */
+    public ValidationPlan read(File configFile, FailFast failFast) {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+          || !readText().equals(identity(configFile))
+          || !readText().equals(failFast == null ? "" : failFast.name())) {
+        return null;
+      }
+      String fingerprint = readText();
+
+      int dictionaryCount = buffer.getInt();
+      for (int i = 0; i < dictionaryCount; i++) {
+        File dictionary = new File(readText());
+        if (!readText().equals(identity(dictionary))) {
+          return null;
+        }
+      }
+
+      strings = new String[buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = readText();
+      }
+
+      Preferences preferences = new Preferences();
+      preferences.setValidMessage(readString());
+      preferences.setInvalidMessage(readString());
+      preferences.setReportLevel(ReportLevel.valueOf(readString()));
+      preferences.setIsSilent(buffer.get() != 0);
+      preferences.setWarnOnUnknownField(buffer.get() != 0);
+      preferences.setFailFast(FailFast.valueOf(readString()));
+
+      int fieldCount = buffer.getInt();
+      Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+      Map<String, List<FieldValidation>> validations = new LinkedHashMap<>();
+
+      for (int i = 0; i < fieldCount; i++) {
+        String fieldName = readString();
+        fieldTypes.put(fieldName, FieldType.valueOf(readString()));
+
+        int validationCount = buffer.getInt();
+        List<FieldValidation> fieldValidations = new ArrayList<>(validationCount);
+        for (int j = 0; j < validationCount; j++) {
+          fieldValidations.add(readValidation());
+        }
+        validations.put(fieldName, fieldValidations);
+      }
+
+      if (buffer.hasRemaining()) {
+        throw new IllegalStateException("Unexpected data at the end of the snapshot");
+      }
+
+      return ValidationPlan.assemble(preferences, fieldTypes, validations, fingerprint);
+    }
+
+    private FieldValidation readValidation() {
+      String kind = readString();
+      String validMessage = readString();
+      String invalidMessage = readString();
+      FieldValidation validation;
+
+      switch (kind) {
+        case CUSTOM:
+          validation = ValidationBuilder.newCustom(readString(), validMessage, invalidMessage);
+          break;
+        case "required":
+          validation = new RequiredValidation(Level.valueOf(readString()), validMessage,
+              invalidMessage);
+          break;
+        case "format":
+          validation = new FormatValidation(FormatType.valueOf(readString()), validMessage,
+              invalidMessage);
+          break;
+        case "allowList":
+          validation = new AllowListValidation(readStrings(), validMessage, invalidMessage);
+          break;
+        case "disallowList":
+          validation = new DisallowListValidation(readStrings(), validMessage, invalidMessage);
+          break;
+        case "warnList":
+          validation = new WarnListValidation(readStrings(), validMessage, invalidMessage);
+          break;
+        case "regex":
+          String regex = readString();
+          validation = new RegexValidation(Pattern.compile(regex, buffer.getInt()), validMessage,
+              invalidMessage);
+          break;
+        default:
+          throw new IllegalStateException("Unknown validation '" + kind + "'");
+      }
+
+      int propertyCount = buffer.getInt();
+      Map<String, Object> properties = new HashMap<>();
+      for (int i = 0; i < propertyCount; i++) {
+        String key = readString();
+        properties.put(key, readProperty());
+      }
+      validation.setProperties(properties);
+
+      return validation;
+    }
+
+    private Object readProperty() {
+      byte type = buffer.get();
+
+      switch (type) {
+        case BOOLEAN_PROPERTY:
+          return buffer.get() != 0;
+        case LONG_PROPERTY:
+          return buffer.getLong();
+        case DOUBLE_PROPERTY:
+          return buffer.getDouble();
+        case STRING_PROPERTY:
+          return readString();
+        case LIST_PROPERTY:
+          return readStrings();
+        default:
+          throw new IllegalStateException("Unknown property type " + type);
+      }
+    }
+
+    private List<String> readStrings() {
+      String[] values = new String[buffer.getInt()];
+
+      for (int i = 0; i < values.length; i++) {
+        values[i] = readString();
+      }
+      return Arrays.asList(values);
+    }
+
+    private String readString() {
+      int index = buffer.getInt();
+      return index < 0 ? null : strings[index];
+    }
+
+    private String readText() {
+      byte[] encoded = new byte[buffer.getInt()];
+      buffer.get(encoded);
+      return new String(encoded, StandardCharsets.UTF_8);
+    }
+  }
+}
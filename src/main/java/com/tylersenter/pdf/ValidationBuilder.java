@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 import java.util.regex.Pattern;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.tylersenter.pdf.validations.AllowListValidation;
 import com.tylersenter.pdf.validations.DisallowListValidation;
 import com.tylersenter.pdf.validations.FieldValidation;
@@ -22,6 +23,11 @@ import com.tylersenter.pdf.validations.WarnListValidation;
 import com.tylersenter.pdf.validations.RequiredValidation.Level;
 
 public class ValidationBuilder {
+  // The classes built for the named validation types, any other validation is custom
+  private static final List<Class<?>> BUILT_IN_TYPES = Arrays.<Class<?>>asList(
+      RequiredValidation.class, FormatValidation.class, AllowListValidation.class,
+      DisallowListValidation.class, WarnListValidation.class, RegexValidation.class);
+
   public static FieldValidation build(String key, JsonNode value) {
     JsonNode valueNode = value;
     String validMessage = null;
@@ -31,6 +37,11 @@ public class ValidationBuilder {
     if (value.isObject()) {
       valueNode = value.get("value");
 
+      if ((valueNode == null || valueNode.isNull()) && isList(key) && value.has("dictionary")) {
+        // The whole list lives in the dictionary file
+        valueNode = JsonNodeFactory.instance.arrayNode();
+      }
+
       if (valueNode == null || valueNode.isNull()) {
         throw new IllegalArgumentException(
             "The 'value' property on a validation must be set if the object configuration is used");
@@ -111,6 +122,18 @@ public class ValidationBuilder {
     return validation;
   }
 
+  /**
+   * @return whether the validation is custom, which includes subclasses of the built-in types and
+   *         classes in the validations package
+   */
+  static boolean isCustom(FieldValidation validation) {
+    return !BUILT_IN_TYPES.contains(validation.getClass());
+  }
+
+  private static boolean isList(String key) {
+    return key.equals("allowList") || key.equals("disallowList") || key.equals("warnList");
+  }
+
   private static List<String> convertArrayToList(ArrayNode node) {
     List<String> list = new ArrayList<>(node.size());
 
@@ -216,8 +239,13 @@ public class ValidationBuilder {
 
   private static FieldValidation buildCustom(JsonNode node, String validMessage,
       String invalidMessage) {
-    String nodeText = node.asText();
+    return newCustom(node.asText(), validMessage, invalidMessage);
+  }
 
+  /**
+   * Create a custom validation from the name of its class.
+   */
+  static FieldValidation newCustom(String nodeText, String validMessage, String invalidMessage) {
     Class<?> cls;
 
     try {
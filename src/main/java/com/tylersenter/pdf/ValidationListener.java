@@ -0,0 +1,37 @@
+package com.tylersenter.pdf;
+
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.validations.FieldValidation;
+
+/**
+ * Observes the outcome of every validation, field and document as a {@link Validator} runs. A
+ * single listener is usually shared by every document of a batch and called from several threads
+ * at once, so implementations must be thread safe.
+ */
+public interface ValidationListener {
+  public static final ValidationListener NONE = new ValidationListener() {
+    public void validationFailed(FormField field, FieldValidation validation) {
+    }
+
+    public void fieldValidated(FormField field, boolean hasWarnings, boolean hasErrors) {
+    }
+
+    public void documentValidated(FormBinding binding, Report report) {
+    }
+  };
+
+  /**
+   * Called when a validation has added an error for the field.
+   */
+  public void validationFailed(FormField field, FieldValidation validation);
+
+  /**
+   * Called once all validations of a field have run.
+   */
+  public void fieldValidated(FormField field, boolean hasWarnings, boolean hasErrors);
+
+  /**
+   * Called once the report of a document is finished.
+   */
+  public void documentValidated(FormBinding binding, Report report);
+}
@@ -0,0 +1,185 @@
+package com.tylersenter.pdf;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tylersenter.pdf.FormField.FieldType;
+import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
+import com.tylersenter.pdf.misc.Digests;
+import com.tylersenter.pdf.validations.FieldValidation;
+import com.tylersenter.pdf.validations.ListValidation;
+import com.tylersenter.pdf.validations.RequiredValidation;
+import com.tylersenter.pdf.validations.RequiredValidation.Level;
+
+/**
+ * A compiled configuration. The plan holds the preferences, the declared fields and the validations
+ * built for every field, and is built once per configuration file. It is never modified after
+ * {@link #compile(JsonNode)} returns, so a single plan can be shared by any number of documents and
+ * threads; the per-document state lives in a {@link FormBinding}.
+ */
+public class ValidationPlan {
+  private final Preferences preferences;
+  private final Map<String, FieldType> fieldTypes;
+  private final Map<String, List<FieldValidation>> validations;
+  private final DependencyGraph dependencyGraph;
+  private final Set<String> alwaysRequired;
+  private final String fingerprint;
+
+  private ValidationPlan(Preferences preferences, Map<String, FieldType> fieldTypes,
+      Map<String, List<FieldValidation>> validations, DependencyGraph dependencyGraph,
+      String fingerprint) {
+    this.preferences = preferences;
+    this.fieldTypes = Collections.unmodifiableMap(fieldTypes);
+    this.validations = validations;
+    this.dependencyGraph = dependencyGraph;
+    this.alwaysRequired = Collections.unmodifiableSet(findAlwaysRequired(validations));
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Parse the preferences and build every field validation declared in the root configuration node.
+   *
+   * @param rootNode the root of the configuration file
+   * @return nonnull ValidationPlan
+   */
+  public static ValidationPlan compile(JsonNode rootNode) {
+    return compile(rootNode, Metrics.DISABLED);
+  }
+
+  /**
+   * Compile a plan, timing it as the {@link Phase#COMPILE} phase.
+   */
+  public static ValidationPlan compile(JsonNode rootNode, Metrics metrics) {
+    long start = metrics.start();
+    Preferences preferences = Preferences.parseFromJson(rootNode);
+    Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+    Map<String, List<FieldValidation>> validations = new LinkedHashMap<>();
+
+    ValidatorBuilder builder = new ValidatorBuilder(fieldTypes, validations);
+    builder.loadFields(rootNode);
+
+    ValidationPlan plan = assemble(preferences, fieldTypes, validations,
+        fingerprint(rootNode, validations));
+    metrics.record(Phase.COMPILE, start);
+
+    return plan;
+  }
+
+  /**
+   * Create a plan from validations that are already built, see {@link PlanSnapshot}.
+   */
+  static ValidationPlan assemble(Preferences preferences, Map<String, FieldType> fieldTypes,
+      Map<String, List<FieldValidation>> validations, String fingerprint) {
+    for (Entry<String, List<FieldValidation>> entry : validations.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+    }
+
+    DependencyGraph dependencyGraph = DependencyGraph.build(fieldTypes, validations);
+
+    return new ValidationPlan(preferences, fieldTypes, Collections.unmodifiableMap(validations),
+        dependencyGraph, fingerprint);
+  }
+
+  public Preferences getPreferences() {
+    return preferences;
+  }
+
+  /**
+   * @return a hash identifying everything the reports of this plan depend on: the configuration and
+   *         the dictionary files its validations read
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @return the declared fields, in the order they appear in the configuration file
+   */
+  public Map<String, FieldType> getFieldTypes() {
+    return fieldTypes;
+  }
+
+  public DependencyGraph getDependencyGraph() {
+    return dependencyGraph;
+  }
+
+  public List<FieldValidation> getValidations(String fieldName) {
+    List<FieldValidation> fieldValidations = validations.get(fieldName);
+
+    if (fieldValidations == null) {
+      return Collections.emptyList();
+    }
+    return fieldValidations;
+  }
+
+  /**
+   * @return whether the field must have a value in every document, no matter the other fields
+   */
+  public boolean isAlwaysRequired(String fieldName) {
+    return alwaysRequired.contains(fieldName);
+  }
+
+  private static Set<String> findAlwaysRequired(Map<String, List<FieldValidation>> validations) {
+    Set<String> fieldNames = new HashSet<>();
+
+    for (Entry<String, List<FieldValidation>> entry : validations.entrySet()) {
+      for (FieldValidation validation : entry.getValue()) {
+        if (validation instanceof RequiredValidation
+            && ((RequiredValidation) validation).getLevel() == Level.YES
+            && ((RequiredValidation) validation).getDependencies().isEmpty()) {
+          fieldNames.add(entry.getKey());
+        }
+      }
+    }
+
+    return fieldNames;
+  }
+
+  private static String fingerprint(JsonNode rootNode,
+      Map<String, List<FieldValidation>> validations) {
+    MessageDigest digest = Digests.sha256();
+    digest.update(rootNode.toString().getBytes(StandardCharsets.UTF_8));
+
+    // A dictionary can be replaced without touching the configuration
+    for (List<FieldValidation> fieldValidations : validations.values()) {
+      for (FieldValidation validation : fieldValidations) {
+        if (validation instanceof ListValidation
+            && ((ListValidation) validation).getDictionary() != null) {
+          File dictionary = ((ListValidation) validation).getDictionary().getFile();
+          String identity = dictionary.getAbsolutePath() + ":" + dictionary.lastModified() + ":"
+              + dictionary.length();
+          digest.update(identity.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    }
+
+    return Digests.toHex(digest.digest());
+  }
+
+  /**
+   * Create a new binding for this plan and populate it with the field values found in a PDF.
+   */
+  public FormBinding bind(File pdf) throws Exception {
+    return bind(pdf, new FormLoader());
+  }
+
+  public FormBinding bind(File pdf, FormLoader loader) throws Exception {
+    FormBinding binding = new FormBinding(this);
+
+    binding.loadFieldsFromFile(pdf, loader);
+
+    return binding;
+  }
+}
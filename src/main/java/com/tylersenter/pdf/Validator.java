@@ -1,57 +1,240 @@
 package com.tylersenter.pdf;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.List;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
 import com.tylersenter.pdf.reporting.Report;
 import com.tylersenter.pdf.validations.FieldValidation;
 
 public class Validator {
-  private Map<String, FormField> fields;
-  private Map<String, List<FieldValidation>> validations;
-  private Preferences preferences;
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 512;
 
-  public Validator(JsonNode rootNode, File pdf) throws Exception {
-    this.fields = new HashMap<>();
-    this.validations = new HashMap<>();
-    this.preferences = Preferences.parseFromJson(rootNode);
+  // Fields validated by one fork-join task before it stops splitting
+  private static final int FIELDS_PER_TASK = 32;
+
+  private ValidationPlan plan;
+  private FormBinding binding;
+  private Metrics metrics = Metrics.DISABLED;
+  private ValidationListener listener = ValidationListener.NONE;
+  private ForkJoinPool fieldPool;
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
-    build(rootNode, pdf);
+  public Validator(JsonNode rootNode, File pdf) throws Exception {
+    this(ValidationPlan.compile(rootNode), pdf);
   }
 
-  private void build(JsonNode rootNode, File pdf) throws Exception {
-    ValidatorBuilder builder = new ValidatorBuilder(this, fields, validations);
+  public Validator(ValidationPlan plan, File pdf) throws Exception {
+    this(plan, plan.bind(pdf));
+  }
 
-    builder.loadFields(rootNode);
-    builder.loadFieldsFromFile(pdf);
+  public Validator(ValidationPlan plan, FormBinding binding) {
+    this.plan = plan;
+    this.binding = binding;
   }
 
   public Preferences getPreferences() {
-    return preferences;
+    return plan.getPreferences();
+  }
+
+  /**
+   * Time {@link #validateAll(Report)} as the {@link Phase#VALIDATE} phase, along with every
+   * validation and every field.
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setValidationListener(ValidationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Validate the fields of forms with at least as many fields as the threshold in parallel on the
+   * given pool. Smaller forms are validated sequentially, where forking costs more than it saves,
+   * and so are all forms when the preferences stop at the first error.
+   */
+  public void setFieldPool(ForkJoinPool fieldPool, int parallelThreshold) {
+    this.fieldPool = fieldPool;
+    this.parallelThreshold = parallelThreshold;
   }
 
   public Report validateAll() {
-    Report report = new Report();
+    return validateAll(new Report());
+  }
 
-    boolean isValid;
-    for (Entry<String, FormField> entry : fields.entrySet()) {
-      String fieldName = entry.getKey();
-      List<FieldValidation> validations = this.validations.get(fieldName);
+  /**
+   * Validate every field of the document into the given report, which may be a streaming report.
+   */
+  public Report validateAll(Report report) {
+    Map<String, FormField> fields = binding.getFields();
+    long start = metrics.start();
 
-      for (FieldValidation validation : validations) {
-        isValid = validation.validate(entry.getValue(), fields, report, preferences);
+    if (plan.getPreferences().stopsAtFirstError()) {
+      validateUntilError(report);
+    } else if (fieldPool != null && fields.size() >= parallelThreshold) {
+      validateParallel(report);
+    } else {
+      for (FormField field : fields.values()) {
+        validateField(field, report);
+        report.next();
+      }
+    }
+    report.finish();
+    metrics.record(Phase.VALIDATE, start);
+    listener.documentValidated(binding, report);
 
-        if (!isValid) {
-          break;
-        }
+    return report;
+  }
+
+  /**
+   * Validate the fields in the given slots, each into a report of its own stored in the results,
+   * and add the results of every field to the report in field order. Fields that are not in the
+   * given slots are not validated again; their entries are taken from the results as they are,
+   * eg. as stored by an earlier run over a previous version of the document.
+   *
+   * Every field is validated in full, no matter the fail fast preference, so that the results can
+   * be kept for the next run.
+   *
+   * @param results the result of every field by slot, entries of the fields to validate are
+   *        replaced
+   */
+  public Report validateFields(Report report, BitSet slots, Report[] results) {
+    DependencyGraph graph = plan.getDependencyGraph();
+    if (results.length != graph.getFieldCount()) {
+      throw new IllegalArgumentException("Expected " + graph.getFieldCount()
+          + " field results, got " + results.length);
+    }
+
+    long start = metrics.start();
+
+    for (FormField field : binding.getFields().values()) {
+      int slot = graph.getSlot(field.getName());
+
+      if (slots.get(slot) || results[slot] == null) {
+        Report result = new Report();
+        validateField(field, result);
+        result.next();
+        results[slot] = result;
       }
+
+      report.addAll(results[slot]);
       report.next();
     }
+    report.finish();
+    metrics.record(Phase.VALIDATE, start);
+    listener.documentValidated(binding, report);
 
     return report;
   }
+
+  /**
+   * Validate the fields in chunks on the fork-join pool, each field into a report of its own, then
+   * add those to the report in field order, so the result is the same as a sequential run.
+   *
+   * Fields only depend on each other through the values read from the document, never through the
+   * outcome of their validations, so any order is correct once the conditions of the dependency
+   * graph have been evaluated.
+   */
+  private void validateParallel(Report report) {
+    binding.evaluateConditions();
+
+    Collection<FormField> fieldValues = binding.getFields().values();
+    FormField[] fields = fieldValues.toArray(new FormField[fieldValues.size()]);
+    Report[] results = new Report[fields.length];
+
+    fieldPool.invoke(new FieldTask(fields, results, 0, fields.length));
+
+    for (Report result : results) {
+      report.addAll(result);
+      report.next();
+    }
+  }
+
+  /**
+   * Validate the fields in order up to the first one with an error. If reading the form already
+   * stopped at an empty required field, only that field is validated; the others may not have
+   * been read.
+   */
+  private void validateUntilError(Report report) {
+    if (binding.isRejected()) {
+      validateField(binding.getRejectedField(), report);
+      report.next();
+      return;
+    }
+
+    for (FormField field : binding.getFields().values()) {
+      validateField(field, report);
+      report.next();
+
+      if (report.hasErrors()) {
+        return;
+      }
+    }
+  }
+
+  private void validateField(FormField field, Report report) {
+    Preferences preferences = plan.getPreferences();
+    Map<String, FormField> fields = binding.getFields();
+    long fieldStart = metrics.start();
+    int fieldWarnings = report.getAddedWarningCount();
+    int fieldErrors = report.getAddedErrorCount();
+
+    for (FieldValidation validation : plan.getValidations(field.getName())) {
+      long validationStart = metrics.start();
+      int errors = report.getAddedErrorCount();
+      boolean isValid = validation.validate(field, fields, report, preferences);
+      metrics.recordValidation(validation, validationStart);
+
+      if (report.getAddedErrorCount() > errors) {
+        listener.validationFailed(field, validation);
+      }
+
+      if (!isValid) {
+        break;
+      }
+    }
+    metrics.recordField(field.getName(), fieldStart);
+    listener.fieldValidated(field, report.getAddedWarningCount() > fieldWarnings,
+        report.getAddedErrorCount() > fieldErrors);
+  }
+
+  private class FieldTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private FormField[] fields;
+    private Report[] results;
+    private int from;
+    private int to;
+
+    public FieldTask(FormField[] fields, Report[] results, int from, int to) {
+      this.fields = fields;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= FIELDS_PER_TASK) {
+        for (int i = from; i < to; i++) {
+          Report result = new Report();
+          validateField(fields[i], result);
+          result.next();
+          results[i] = result;
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(new FieldTask(fields, results, from, middle),
+          new FieldTask(fields, results, middle, to));
+    }
+  }
 }
@@ -1,6 +1,5 @@
 package com.tylersenter.pdf;
 
-import java.io.File;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -10,19 +9,13 @@ import java.util.Map.Entry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.tylersenter.pdf.FormField.FieldType;
 import com.tylersenter.pdf.validations.FieldValidation;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
-import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
-import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 
 public class ValidatorBuilder {
-  private Validator validator;
-  private Map<String, FormField> fields;
+  private Map<String, FieldType> fieldTypes;
   private Map<String, List<FieldValidation>> validations;
 
-  public ValidatorBuilder(Validator validator, Map<String, FormField> fields, Map<String, List<FieldValidation>> validations) {
-    this.validator = validator;
-    this.fields = fields;
+  public ValidatorBuilder(Map<String, FieldType> fieldTypes, Map<String, List<FieldValidation>> validations) {
+    this.fieldTypes = fieldTypes;
     this.validations = validations;
   }
 
@@ -48,7 +41,7 @@ public class ValidatorBuilder {
       String fieldTypeString = null;
       FieldType fieldType;
 
-      if (fields.containsKey(fieldName)) {
+      if (fieldTypes.containsKey(fieldName)) {
         throw new IllegalStateException("The field '" + fieldName + "' is defined twice");
       }
 
@@ -60,36 +53,13 @@ public class ValidatorBuilder {
             + ". Valid values are " + Arrays.toString(FieldType.values()));
       }
 
-      FormField formField = new FormField(fieldName, fieldType);
-
-      fields.put(fieldName, formField);
+      fieldTypes.put(fieldName, fieldType);
       validations.put(fieldName, new LinkedList<FieldValidation>());
 
       loadValidations(fieldName, fieldNode);
     }
   }
 
-  public void loadFieldsFromFile(File pdf) throws Exception {
-    PDDocument doc = PDDocument.load(pdf);
-    PDDocumentCatalog catalog = doc.getDocumentCatalog();
-    PDAcroForm form = catalog.getAcroForm();
-
-    for (PDField field : form.getFields()) {
-      String fieldName = field.getFullyQualifiedName();
-
-      if (!fields.containsKey(fieldName)) {
-        if (validator.getPreferences().warnOnUnknownField()) {
-          System.err.println("Unknown field: " + fieldName);
-        }
-        continue;
-      }
-
-      fields.get(fieldName).setField(field);
-    }
-
-    doc.close();
-  }
-
   private void loadValidations(String fieldName, JsonNode fieldNode) {
     JsonNode validationsNode = fieldNode.get("validations");
 
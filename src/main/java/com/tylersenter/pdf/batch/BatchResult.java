@@ -0,0 +1,68 @@
+package com.tylersenter.pdf.batch;
+
+import java.io.File;
+import com.tylersenter.pdf.reporting.Report;
+
+/**
+ * The outcome of validating a single document as part of a batch. Exactly one of the report and the
+ * failure is set.
+ */
+public class BatchResult {
+  public static final int EXIT_VALID = 0;
+  public static final int EXIT_INVALID = 1;
+  public static final int EXIT_FAILURE = 2;
+
+  private int index;
+  private File file;
+  private Report report;
+  private Exception failure;
+
+  public BatchResult(int index, File file, Report report) {
+    this.index = index;
+    this.file = file;
+    this.report = report;
+  }
+
+  public BatchResult(int index, File file, Exception failure) {
+    this.index = index;
+    this.file = file;
+    this.failure = failure;
+  }
+
+  /**
+   * @return the position of the document in the batch input
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public Report getReport() {
+    return report;
+  }
+
+  public Exception getFailure() {
+    return failure;
+  }
+
+  public boolean isFailure() {
+    return failure != null;
+  }
+
+  /**
+   * @return {@link #EXIT_FAILURE} if the document could not be validated, {@link #EXIT_INVALID} if
+   *         its report contains errors and {@link #EXIT_VALID} otherwise
+   */
+  public int getExitCode() {
+    if (isFailure()) {
+      return EXIT_FAILURE;
+    }
+    if (report.hasErrors()) {
+      return EXIT_INVALID;
+    }
+    return EXIT_VALID;
+  }
+}
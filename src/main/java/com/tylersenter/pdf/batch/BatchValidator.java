@@ -0,0 +1,307 @@
+package com.tylersenter.pdf.batch;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.ValidationListener;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.cache.ResultCache;
+import com.tylersenter.pdf.incremental.IncrementalValidator;
+import com.tylersenter.pdf.incremental.SnapshotStore;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.reporting.FieldBitsetReport;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.reporting.ReportSink;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+
+/**
+ * Validates a list of documents against a single {@link ValidationPlan} on a pool of worker
+ * threads. Every document gets its own report, and results are handed back on the calling thread
+ * either in input order or in the order they complete.
+ *
+ * The number of documents in flight, that is submitted but not yet validated, is capped so that at
+ * most that many PDFs are held in memory at once, no matter how long the input list is.
+ */
+public class BatchValidator {
+  public static enum ResultOrder {
+    INPUT, COMPLETION;
+  }
+
+  /**
+   * Receives the result of every document in the batch. Results are always delivered on the thread
+   * that called {@link BatchValidator#validate(List, ResultHandler)}, one at a time.
+   */
+  public static interface ResultHandler {
+    public void handle(BatchResult result);
+  }
+
+  private ValidationPlan plan;
+  private int parallelism;
+  private int maxInFlight;
+  private ResultOrder order;
+  private ReportSink sink;
+  private FormLoader loader;
+  private Metrics metrics = Metrics.DISABLED;
+  private ValidationListener listener = ValidationListener.NONE;
+  private ResultCache cache;
+  private SnapshotStore snapshots;
+  private IncrementalValidator incremental;
+  private ForkJoinPool fieldPool;
+  private int parallelThreshold;
+
+  public BatchValidator(ValidationPlan plan, int parallelism) {
+    this(plan, parallelism, parallelism, ResultOrder.INPUT);
+  }
+
+  public BatchValidator(ValidationPlan plan, int parallelism, int maxInFlight, ResultOrder order) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("The number of documents in flight must be at least 1");
+    }
+
+    this.plan = plan;
+    this.parallelism = parallelism;
+    this.maxInFlight = maxInFlight;
+    this.order = order;
+    this.loader = new FormLoader();
+  }
+
+  /**
+   * Stream the entries of every document to the given sink instead of buffering them in each
+   * document's report. The sink is shared by all workers.
+   */
+  public void setReportSink(ReportSink sink) {
+    this.sink = sink;
+  }
+
+  public void setFormLoader(FormLoader loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Time the validation of every document. Loading is timed by the form loader, see
+   * {@link FormLoader#setMetrics(Metrics)}.
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Pass the outcome of every validated document to the listener, which is shared by all workers.
+   * Documents whose report is found in the result cache are not validated, so the listener does not
+   * see them.
+   */
+  public void setValidationListener(ValidationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Validate the fields of large forms in parallel, see
+   * {@link Validator#setFieldPool(ForkJoinPool, int)}. The pool is shared by all documents.
+   */
+  public void setFieldPool(ForkJoinPool fieldPool, int parallelThreshold) {
+    this.fieldPool = fieldPool;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  /**
+   * Look up the report of every document in the cache before validating it, and store the reports
+   * of the documents that were not found.
+   */
+  public void setResultCache(ResultCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Validate documents that were validated before from their snapshot in the store, and store a
+   * snapshot of every document, see {@link IncrementalValidator}. The result cache is not used
+   * then.
+   *
+   * @throws IllegalArgumentException if the preferences stop at the first error
+   */
+  public void setSnapshotStore(SnapshotStore snapshots) {
+    if (snapshots != null) {
+      // Fails early if the plan cannot be validated incrementally
+      new IncrementalValidator(plan, snapshots);
+    }
+    this.snapshots = snapshots;
+  }
+
+  /**
+   * Validate every file and pass each result to the handler.
+   *
+   * @return the highest exit code of all results in the batch, see
+   *         {@link BatchResult#getExitCode()}
+   */
+  public int validate(List<File> files, ResultHandler handler) throws InterruptedException {
+    int threads = Math.min(parallelism, Math.max(files.size(), 1));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CompletionService<BatchResult> completionService = new ExecutorCompletionService<>(executor);
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    ResultCollector collector = new ResultCollector(handler);
+
+    incremental = null;
+    if (snapshots != null) {
+      incremental = new IncrementalValidator(plan, snapshots);
+      incremental.setFormLoader(loader);
+      incremental.setMetrics(metrics);
+      incremental.setValidationListener(listener);
+    }
+
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        inFlight.acquire();
+        completionService.submit(new ValidationTask(i, files.get(i), inFlight));
+
+        Future<BatchResult> done;
+        while ((done = completionService.poll()) != null) {
+          collector.accept(getResult(done));
+        }
+      }
+
+      while (collector.getReceived() < files.size()) {
+        collector.accept(getResult(completionService.take()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return collector.getExitCode();
+  }
+
+  private static BatchResult getResult(Future<BatchResult> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      // ValidationTask catches everything it can recover from, so this is an Error
+      throw new IllegalStateException("Validation worker failed", e.getCause());
+    }
+  }
+
+  private class ValidationTask implements Callable<BatchResult> {
+    private int index;
+    private File file;
+    private Semaphore inFlight;
+
+    public ValidationTask(int index, File file, Semaphore inFlight) {
+      this.index = index;
+      this.file = file;
+      this.inFlight = inFlight;
+    }
+
+    public BatchResult call() {
+      try {
+        Report report = createReport(file, sink);
+
+        if (incremental != null) {
+          return new BatchResult(index, file, incremental.validate(file, report));
+        }
+        if (cache == null) {
+          return new BatchResult(index, file, validate(file, report));
+        }
+
+        // Hash and parse the same bytes, so a file replaced in between is not cached under the key
+        // of its previous content
+        byte[] document = Files.readAllBytes(file.toPath());
+        String key = cache.key(document, plan);
+        if (!cache.load(key, report)) {
+          // A streaming report keeps nothing to store, so validate into a buffered one
+          FormBinding binding = new FormBinding(plan);
+          loader.load(new RandomAccessBuffer(document), binding);
+          Report buffered = validate(binding, createReport(file, null));
+          cache.store(key, buffered);
+
+          if (!report.isStreaming()) {
+            return new BatchResult(index, file, buffered);
+          }
+          ResultCache.copy(buffered, report);
+        }
+
+        return new BatchResult(index, file, report);
+      } catch (Exception e) {
+        return new BatchResult(index, file, e);
+      } finally {
+        inFlight.release();
+      }
+    }
+  }
+
+  /**
+   * Reports that are not streamed only keep which fields failed when the report level never
+   * outputs messages.
+   */
+  private Report createReport(File file, ReportSink sink) {
+    if (sink == null && !plan.getPreferences().reportsMessages()) {
+      return new FieldBitsetReport(file.getPath(), plan.getDependencyGraph());
+    }
+    return new Report(file.getPath(), sink);
+  }
+
+  private Report validate(File file, Report report) throws Exception {
+    return validate(plan.bind(file, loader), report);
+  }
+
+  private Report validate(FormBinding binding, Report report) throws Exception {
+    Validator validator = new Validator(plan, binding);
+    validator.setMetrics(metrics);
+    validator.setValidationListener(listener);
+    if (fieldPool != null) {
+      validator.setFieldPool(fieldPool, parallelThreshold);
+    }
+
+    return validator.validateAll(report);
+  }
+
+  private class ResultCollector {
+    private ResultHandler handler;
+    private Map<Integer, BatchResult> pending;
+    private int nextIndex;
+    private int received;
+    private int exitCode;
+
+    public ResultCollector(ResultHandler handler) {
+      this.handler = handler;
+      this.pending = new HashMap<>();
+    }
+
+    public void accept(BatchResult result) {
+      received++;
+      exitCode = Math.max(exitCode, result.getExitCode());
+
+      if (order == ResultOrder.COMPLETION) {
+        handler.handle(result);
+        return;
+      }
+
+      pending.put(result.getIndex(), result);
+      while (pending.containsKey(nextIndex)) {
+        handler.handle(pending.remove(nextIndex));
+        nextIndex++;
+      }
+    }
+
+    public int getReceived() {
+      return received;
+    }
+
+    public int getExitCode() {
+      return exitCode;
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package com.tylersenter.pdf.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.misc.Digests;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.reporting.Report.EntryType;
+import com.tylersenter.pdf.reporting.ReportEntry;
+
+/**
+ * An on-disk cache of reports keyed by the SHA-256 of the PDF and the fingerprint of the plan, see
+ * {@link ValidationPlan#getFingerprint()}. A hit costs one streaming pass to hash the document and
+ * one read of the cached entry; the PDF itself is never parsed.
+ *
+ * Several processes can share a cache directory. Entries are written to a temporary file and moved
+ * into place atomically, so readers only ever see complete entries, and eviction is serialized by a
+ * lock file. When the entries grow past the size limit, the least recently used ones are removed
+ * until the cache is back under 90% of the limit. A hit refreshes the modification time of the
+ * entry, which is what recency is based on.
+ *
+ * The cache is an optimization: entries that cannot be read or written are treated as misses.
+ */
+public class ResultCache {
+  private static final int FORMAT_VERSION = 1;
+  private static final String LOCK_FILE = "cache.lock";
+  private static final String ENTRY_SUFFIX = ".json";
+
+  private static final Comparator<CachedFile> LEAST_RECENTLY_USED = new Comparator<CachedFile>() {
+    public int compare(CachedFile left, CachedFile right) {
+      return Long.compare(left.lastUsed, right.lastUsed);
+    }
+  };
+
+  private Path directory;
+  private long maxBytes;
+  private ObjectMapper mapper;
+  // Size of the entries as last scanned plus what this process wrote since
+  private AtomicLong approximateBytes;
+
+  public ResultCache(Path directory, long maxBytes) throws IOException {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("The cache size must be at least 1 byte");
+    }
+
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.mapper = new ObjectMapper();
+
+    Files.createDirectories(directory);
+    this.approximateBytes = new AtomicLong(totalBytes(listEntries()));
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return the key of the report of the given document under the given plan
+   */
+  public String key(byte[] pdf, ValidationPlan plan) {
+    return Digests.toHex(Digests.sha256().digest(pdf)) + "-" + plan.getFingerprint();
+  }
+
+  /**
+   * Replay the cached entries of a document into the report, which may be a streaming report. The
+   * report is finished if the entry is found and left untouched otherwise.
+   *
+   * @return whether the key was found
+   */
+  public boolean load(String key, Report report) {
+    Path entry = entryPath(key);
+    JsonNode root;
+
+    try {
+      root = mapper.readTree(Files.readAllBytes(entry));
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (JsonProcessingException e) {
+      delete(entry);
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+
+    if (root.path("version").asInt() != FORMAT_VERSION) {
+      return false;
+    }
+
+    replay(root.path("reports"), EntryType.REPORT, report);
+    replay(root.path("warnings"), EntryType.WARNING, report);
+    replay(root.path("errors"), EntryType.ERROR, report);
+    report.finish();
+
+    try {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // evicted in the meantime, the entry was read all the same
+    }
+    return true;
+  }
+
+  /**
+   * Store a finished, buffered report under the given key.
+   */
+  public void store(String key, Report report) {
+    ObjectNode root = mapper.createObjectNode();
+    root.put("version", FORMAT_VERSION);
+    collect(report.getReports(), root.putArray("reports"));
+    collect(report.getWarnings(), root.putArray("warnings"));
+    collect(report.getErrors(), root.putArray("errors"));
+
+    Path entry = entryPath(key);
+    Path temporary = null;
+
+    try {
+      byte[] bytes = mapper.writeValueAsBytes(root);
+
+      Files.createDirectories(entry.getParent());
+      temporary = Files.createTempFile(entry.getParent(), ".entry-", ".tmp");
+      Files.write(temporary, bytes);
+      Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temporary = null;
+
+      if (approximateBytes.addAndGet(bytes.length) > maxBytes) {
+        evict();
+      }
+    } catch (IOException e) {
+      // Not cached, the next run validates the document again
+    } finally {
+      if (temporary != null) {
+        delete(temporary);
+      }
+    }
+  }
+
+  /**
+   * Remove the least recently used entries until the cache is under 90% of its limit. Only one
+   * thread of one process evicts at a time, and the size is recounted under the lock, since other
+   * processes may have written or evicted entries.
+   */
+  private synchronized void evict() throws IOException {
+    try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        evictLocked();
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  // Called with the eviction lock held
+  private void evictLocked() throws IOException {
+    List<CachedFile> entries = listEntries();
+    long total = totalBytes(entries);
+    long target = maxBytes / 10 * 9;
+
+    if (total > maxBytes) {
+      Collections.sort(entries, LEAST_RECENTLY_USED);
+
+      Iterator<CachedFile> iterator = entries.iterator();
+      while (total > target && iterator.hasNext()) {
+        CachedFile entry = iterator.next();
+
+        if (delete(entry.path)) {
+          total -= entry.bytes;
+        }
+      }
+    }
+
+    approximateBytes.set(total);
+  }
+
+  private Path entryPath(String key) {
+    // Spread the entries over 256 directories to keep directory listings short
+    return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+  }
+
+  private List<CachedFile> listEntries() throws IOException {
+    List<CachedFile> entries = new ArrayList<>();
+
+    try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory)) {
+      for (Path shard : shards) {
+        if (!Files.isDirectory(shard)) {
+          continue;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shard, "*" + ENTRY_SUFFIX)) {
+          for (Path file : files) {
+            try {
+              BasicFileAttributes attributes =
+                  Files.readAttributes(file, BasicFileAttributes.class);
+              entries.add(new CachedFile(file, attributes.size(),
+                  attributes.lastModifiedTime().toMillis()));
+            } catch (NoSuchFileException e) {
+              // evicted by another process while listing
+            }
+          }
+        }
+      }
+    }
+
+    return entries;
+  }
+
+  private static long totalBytes(List<CachedFile> entries) {
+    long total = 0;
+
+    for (CachedFile entry : entries) {
+      total += entry.bytes;
+    }
+    return total;
+  }
+
+  private static void collect(Iterator<ReportEntry> entries, ArrayNode node) {
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      node.addArray().add(entry.getKey()).add(entry.getValue());
+    }
+  }
+
+  /**
+   * Copy the entries of a finished, buffered report into another report, which may be a streaming
+   * report, and finish it.
+   */
+  public static void copy(Report source, Report target) {
+    copy(source.getReports(), EntryType.REPORT, target);
+    copy(source.getWarnings(), EntryType.WARNING, target);
+    copy(source.getErrors(), EntryType.ERROR, target);
+    target.finish();
+  }
+
+  private static void copy(Iterator<ReportEntry> entries, EntryType type, Report report) {
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      add(type, entry.getKey(), entry.getValue(), report);
+    }
+  }
+
+  private static void replay(JsonNode entries, EntryType type, Report report) {
+    for (JsonNode entry : entries) {
+      JsonNode messageNode = entry.path(1);
+      add(type, entry.path(0).asText(), messageNode.isNull() ? null : messageNode.asText(), report);
+    }
+  }
+
+  /**
+   * Add an entry and complete the report's current field, so that every entry is kept as it is.
+   */
+  private static void add(EntryType type, String fieldName, String message, Report report) {
+    switch (type) {
+      case REPORT:
+        report.addReport(fieldName, message);
+        break;
+      case WARNING:
+        report.addWarning(fieldName, message);
+        break;
+      case ERROR:
+        report.addError(fieldName, message);
+        break;
+    }
+    report.next();
+  }
+
+  private static boolean delete(Path path) {
+    try {
+      return Files.deleteIfExists(path);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static class CachedFile {
+    private Path path;
+    private long bytes;
+    private long lastUsed;
+
+    public CachedFile(Path path, long bytes, long lastUsed) {
+      this.path = path;
+      this.bytes = bytes;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.tylersenter.pdf.misc.MessageTemplate;
+import com.tylersenter.pdf.misc.VariableUtils;
 
 public class Preferences {
 
@@ -11,11 +13,20 @@ public class Preferences {
     NONE, EXIT_CODE, COMPACT, DETAILED, ALL;
   }
 
+  /**
+   * When to stop validating a document: never, at the first field with an error, or also while
+   * reading the form, as soon as a field that is always required turns out to be empty.
+   */
+  public static enum FailFast {
+    OFF, ERRORS, REQUIRED;
+  }
+
   private static final String INVALID_MESSAGE_FIELD = "invalidMessage";
   private static final String VALID_MESSAGE_FIELD = "validMessage";
   private static final String REPORT_LEVEL_FIELD = "reportLevel";
   private static final String SILENT_FIELD = "silent";
   private static final String WARN_ON_UNKNOWN_FIELD = "warnOnUnknownField";
+  private static final String FAIL_FAST_FIELD = "failFast";
 
   private static final Map<String, Object> DEFAULT_VALUES;
 
@@ -27,20 +38,25 @@ public class Preferences {
     DEFAULT_VALUES.put(REPORT_LEVEL_FIELD, ReportLevel.DETAILED);
     DEFAULT_VALUES.put(SILENT_FIELD, false);
     DEFAULT_VALUES.put(WARN_ON_UNKNOWN_FIELD, true);
+    DEFAULT_VALUES.put(FAIL_FAST_FIELD, FailFast.OFF);
   }
 
   private String validMessage;
   private String invalidMessage;
+  private MessageTemplate validTemplate;
+  private MessageTemplate invalidTemplate;
   private ReportLevel reportLevel;
   private boolean isSilent;
   private boolean warnOnUnknownField;
+  private FailFast failFast;
 
   public Preferences() {
-    this.validMessage = (String) DEFAULT_VALUES.get(VALID_MESSAGE_FIELD);
-    this.invalidMessage = (String) DEFAULT_VALUES.get(INVALID_MESSAGE_FIELD);
+    setValidMessage((String) DEFAULT_VALUES.get(VALID_MESSAGE_FIELD));
+    setInvalidMessage((String) DEFAULT_VALUES.get(INVALID_MESSAGE_FIELD));
     this.reportLevel = (ReportLevel) DEFAULT_VALUES.get(REPORT_LEVEL_FIELD);
     this.isSilent = (boolean) DEFAULT_VALUES.get(SILENT_FIELD);
     this.warnOnUnknownField = (boolean) DEFAULT_VALUES.get(WARN_ON_UNKNOWN_FIELD);
+    this.failFast = (FailFast) DEFAULT_VALUES.get(FAIL_FAST_FIELD);
   }
 
   public String getValidMessage() {
@@ -49,6 +65,11 @@ public class Preferences {
 
   public void setValidMessage(String validMessage) {
     this.validMessage = validMessage;
+    this.validTemplate = VariableUtils.compile(validMessage);
+  }
+
+  public MessageTemplate getValidTemplate() {
+    return validTemplate;
   }
 
   public String getInvalidMessage() {
@@ -57,6 +78,11 @@ public class Preferences {
 
   public void setInvalidMessage(String invalidMessage) {
     this.invalidMessage = invalidMessage;
+    this.invalidTemplate = VariableUtils.compile(invalidMessage);
+  }
+
+  public MessageTemplate getInvalidTemplate() {
+    return invalidTemplate;
   }
 
   public ReportLevel getReportLevel() {
@@ -67,6 +93,21 @@ public class Preferences {
     this.reportLevel = reportingType;
   }
 
+  /**
+   * @return whether messages for valid fields are output at the configured report level
+   */
+  public boolean reportsValidFields() {
+    return reportLevel == ReportLevel.ALL;
+  }
+
+  /**
+   * @return whether warning and error messages are output at the configured report level. Below
+   *         {@link ReportLevel#DETAILED}, only the names of the failing fields are needed.
+   */
+  public boolean reportsMessages() {
+    return reportLevel == ReportLevel.DETAILED || reportLevel == ReportLevel.ALL;
+  }
+
   public boolean isSilent() {
     return isSilent;
   }
@@ -83,6 +124,30 @@ public class Preferences {
     this.warnOnUnknownField = warnOnUnknownField;
   }
 
+  public FailFast getFailFast() {
+    return failFast;
+  }
+
+  public void setFailFast(FailFast failFast) {
+    this.failFast = failFast;
+  }
+
+  /**
+   * @return whether a document is only validated up to its first field with an error. The report
+   *         then holds that single error, which is all {@link ReportLevel#EXIT_CODE} and
+   *         {@link ReportLevel#COMPACT} pipelines need to reject a document.
+   */
+  public boolean stopsAtFirstError() {
+    return failFast != FailFast.OFF;
+  }
+
+  /**
+   * @return whether reading a form stops at the first empty field that is always required
+   */
+  public boolean prescreensRequiredFields() {
+    return failFast == FailFast.REQUIRED;
+  }
+
   /**
     Retrieve and construct a preferences object from the root configuration node.
 
@@ -104,6 +169,7 @@ public class Preferences {
     preferences.setReportLevel(getReportTypeJson(rootNode));
     preferences.setIsSilent(getSilent(rootNode));
     preferences.setWarnOnUnknownField(getWarnOnUnknown(rootNode));
+    preferences.setFailFast(getFailFast(rootNode));
 
     return preferences;
   }
@@ -170,4 +236,19 @@ public class Preferences {
     
     throw new IllegalArgumentException("Value '" + propertyNode.asText() + "' is not a valid value. Valid values are [true,false]");
   }
+
+  private static FailFast getFailFast(JsonNode node) {
+    JsonNode propertyNode = node.get(FAIL_FAST_FIELD);
+
+    if (propertyNode == null || propertyNode.isNull()) {
+      return (FailFast) DEFAULT_VALUES.get(FAIL_FAST_FIELD);
+    }
+
+    String modeAsText = propertyNode.asText();
+    try {
+      return FailFast.valueOf(modeAsText.toUpperCase());
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Value '" + modeAsText + "' is not a valid fail fast mode. Valid values are " + Arrays.toString(FailFast.values()));
+    }
+  }
 }
@@ -0,0 +1,173 @@
+package com.tylersenter.pdf.incremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.DependencyGraph;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.loading.FormLayout;
+import com.tylersenter.pdf.misc.Digests;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.reporting.ReportEntry;
+
+/**
+ * The state of one revision of a document after it was validated: the layout of its form, the
+ * value of every declared field and the entries every field added to the report. The next
+ * revision, made by appending an incremental update, is validated from the snapshot by reading
+ * the update only.
+ *
+ * A snapshot is tied to the plan it was taken with, see {@link ValidationPlan#getFingerprint()},
+ * and to the bytes the revision ends with, so a document that was rewritten rather than appended
+ * to is not mistaken for a later revision.
+ */
+public class FormSnapshot {
+  private static final int FORMAT_VERSION = 1;
+  // Bytes at the end of the revision that a later revision must still contain
+  private static final int TAIL_LENGTH = 1024;
+
+  private final String fingerprint;
+  private final String tailDigest;
+  private final FormLayout layout;
+  private final Map<String, String> values;
+  private final Report[] results;
+
+  /**
+   * @param values the value of every declared field, in declaration order
+   * @param results the entries of every declared field by slot, see {@link DependencyGraph}
+   */
+  public FormSnapshot(String fingerprint, String tailDigest, FormLayout layout,
+      Map<String, String> values, Report[] results) {
+    this.fingerprint = fingerprint;
+    this.tailDigest = tailDigest;
+    this.layout = layout;
+    this.values = Collections.unmodifiableMap(values);
+    this.results = results;
+  }
+
+  /**
+   * @return the digest of the end of the revision the layout was taken from, see
+   *         {@link #isRevisionOf(File)}
+   */
+  public static String tailDigest(File pdf, FormLayout layout) throws IOException {
+    long length = Math.min(TAIL_LENGTH, layout.getLength());
+    return Digests.sha256(pdf, layout.getLength() - length, length);
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public FormLayout getLayout() {
+    return layout;
+  }
+
+  public Map<String, String> getValues() {
+    return values;
+  }
+
+  /**
+   * @return a copy of the results of every field by slot
+   */
+  public Report[] getResults() {
+    return results.clone();
+  }
+
+  /**
+   * @return whether the document still starts with the revision of this snapshot, judging by its
+   *         length and the bytes the revision ended with
+   */
+  public boolean isRevisionOf(File pdf) throws IOException {
+    return pdf.length() >= layout.getLength() && tailDigest.equals(tailDigest(pdf, layout));
+  }
+
+  public ObjectNode toJson() {
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+    root.put("version", FORMAT_VERSION);
+    root.put("fingerprint", fingerprint);
+    root.put("tail", tailDigest);
+    root.set("layout", layout.toJson());
+
+    ObjectNode fieldsNode = root.putObject("fields");
+    int slot = 0;
+    for (Entry<String, String> entry : values.entrySet()) {
+      ObjectNode fieldNode = fieldsNode.putObject(entry.getKey());
+      Report result = results[slot++];
+
+      fieldNode.put("value", entry.getValue());
+      collect(result.getReports(), fieldNode.putArray("reports"));
+      collect(result.getWarnings(), fieldNode.putArray("warnings"));
+      collect(result.getErrors(), fieldNode.putArray("errors"));
+    }
+
+    return root;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the node is not a snapshot taken with the given plan
+   */
+  public static FormSnapshot fromJson(JsonNode root, ValidationPlan plan) {
+    if (root.path("version").asInt() != FORMAT_VERSION
+        || !plan.getFingerprint().equals(root.path("fingerprint").asText())) {
+      throw new IllegalArgumentException("Not a snapshot of this configuration");
+    }
+
+    DependencyGraph graph = plan.getDependencyGraph();
+    Map<String, String> values = new LinkedHashMap<>();
+    Report[] results = new Report[graph.getFieldCount()];
+
+    Iterator<Entry<String, JsonNode>> fields = root.path("fields").fields();
+    while (fields.hasNext()) {
+      Entry<String, JsonNode> entry = fields.next();
+      int slot = graph.getSlot(entry.getKey());
+
+      if (slot != values.size()) {
+        throw new IllegalArgumentException("Unexpected field '" + entry.getKey() + "'");
+      }
+
+      JsonNode valueNode = entry.getValue().path("value");
+      values.put(entry.getKey(), valueNode.isTextual() ? valueNode.asText() : null);
+
+      Report result = new Report();
+      JsonNode fieldNode = entry.getValue();
+      for (JsonNode reportEntry : fieldNode.path("reports")) {
+        result.addReport(reportEntry.path(0).asText(), message(reportEntry));
+      }
+      for (JsonNode warningEntry : fieldNode.path("warnings")) {
+        result.addWarning(warningEntry.path(0).asText(), message(warningEntry));
+      }
+      for (JsonNode errorEntry : fieldNode.path("errors")) {
+        result.addError(errorEntry.path(0).asText(), message(errorEntry));
+      }
+      result.next();
+      results[slot] = result;
+    }
+
+    if (values.size() != results.length) {
+      throw new IllegalArgumentException("Expected " + results.length + " fields, got "
+          + values.size());
+    }
+
+    return new FormSnapshot(root.path("fingerprint").asText(), root.path("tail").asText(),
+        FormLayout.fromJson(root.path("layout")), values, results);
+  }
+
+  private static String message(JsonNode entry) {
+    JsonNode messageNode = entry.path(1);
+    return messageNode.isTextual() ? messageNode.asText() : null;
+  }
+
+  private static void collect(Iterator<ReportEntry> entries, ArrayNode node) {
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      node.addArray().add(entry.getKey()).add(entry.getValue());
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package com.tylersenter.pdf.incremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import com.tylersenter.pdf.DependencyGraph;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.FormField;
+import com.tylersenter.pdf.ValidationListener;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.configurations.Preferences.FailFast;
+import com.tylersenter.pdf.loading.FormLayout;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.reporting.Report;
+
+/**
+ * Validates documents that grow by incremental updates, such as forms going through several
+ * filling and signing rounds, in time proportional to the size of each update rather than to the
+ * size of the document.
+ *
+ * After a document is validated, a {@link FormSnapshot} of it is stored. When the document is
+ * validated again and it only grew by appended updates since, only the cross-reference sections of
+ * the updates and the objects they replace are read, see
+ * {@link FormLoader#loadUpdate(File, FormLayout, FormBinding, Set)}. The fields whose objects
+ * changed are validated again, along with the fields with a condition on them and the fields with
+ * custom validations, which may read any field; every other field keeps the entries stored in the
+ * snapshot. The report is the same as that of a full validation.
+ *
+ * Documents without a usable snapshot, and updates that change the field hierarchy, add, remove
+ * or rename fields, are validated in full.
+ *
+ * Every field is validated to completion, so the fail fast preference must be off. A validation
+ * listener only sees the fields that are validated again.
+ */
+public class IncrementalValidator {
+  private ValidationPlan plan;
+  private SnapshotStore store;
+  private FormLoader loader;
+  private Metrics metrics = Metrics.DISABLED;
+  private ValidationListener listener = ValidationListener.NONE;
+
+  public IncrementalValidator(ValidationPlan plan, SnapshotStore store) {
+    if (plan.getPreferences().getFailFast() != FailFast.OFF) {
+      throw new IllegalArgumentException(
+          "Incremental validation needs every field validated, fail fast must be off");
+    }
+
+    this.plan = plan;
+    this.store = store;
+    this.loader = new FormLoader();
+  }
+
+  public void setFormLoader(FormLoader loader) {
+    this.loader = loader;
+  }
+
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setValidationListener(ValidationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Validate a document into the given report, which may be a streaming report, from its snapshot
+   * if possible, and store the snapshot of the current revision.
+   */
+  public Report validate(File pdf, Report report) throws IOException {
+    FormSnapshot snapshot = store.load(pdf, plan);
+
+    if (snapshot != null && snapshot.isRevisionOf(pdf)) {
+      FormBinding binding = new FormBinding(plan);
+      for (Entry<String, String> entry : snapshot.getValues().entrySet()) {
+        binding.bindValue(entry.getKey(), entry.getValue());
+      }
+
+      Set<String> changedFields = new HashSet<>();
+      FormLayout layout = null;
+      try {
+        layout = loader.loadUpdate(pdf, snapshot.getLayout(), binding, changedFields);
+      } catch (IOException e) {
+        // Not an update the snapshot can follow, validated in full below
+      }
+
+      if (layout != null) {
+        Report[] results = snapshot.getResults();
+        validate(binding, report, changedSlots(changedFields), results);
+
+        if (layout.getLength() != snapshot.getLayout().getLength()) {
+          store.store(pdf, snapshot(pdf, layout, binding, results));
+        }
+        return report;
+      }
+    }
+
+    FormBinding binding = new FormBinding(plan);
+    FormLayout layout = loader.loadWithLayout(pdf, binding);
+    Report[] results = new Report[plan.getDependencyGraph().getFieldCount()];
+
+    BitSet allSlots = new BitSet();
+    allSlots.set(0, results.length);
+    validate(binding, report, allSlots, results);
+
+    store.store(pdf, snapshot(pdf, layout, binding, results));
+    return report;
+  }
+
+  private void validate(FormBinding binding, Report report, BitSet slots, Report[] results) {
+    Validator validator = new Validator(plan, binding);
+    validator.setMetrics(metrics);
+    validator.setValidationListener(listener);
+    validator.validateFields(report, slots, results);
+  }
+
+  /**
+   * @return the slots of the changed fields, of the fields with a condition on them and of the
+   *         fields that may read any other field
+   */
+  private BitSet changedSlots(Set<String> changedFields) {
+    DependencyGraph graph = plan.getDependencyGraph();
+    BitSet slots = new BitSet();
+
+    for (String fieldName : changedFields) {
+      int slot = graph.getSlot(fieldName);
+
+      slots.set(slot);
+      for (int dependent : graph.getDependents(slot)) {
+        slots.set(dependent);
+      }
+    }
+
+    for (int slot = 0; slot < graph.getFieldCount(); slot++) {
+      if (graph.hasUnknownDependencies(slot)) {
+        slots.set(slot);
+      }
+    }
+
+    return slots;
+  }
+
+  private FormSnapshot snapshot(File pdf, FormLayout layout, FormBinding binding,
+      Report[] results) throws IOException {
+    Map<String, String> values = new LinkedHashMap<>();
+
+    for (FormField field : binding.getFields().values()) {
+      values.put(field.getName(), field.valueAsString());
+    }
+
+    return new FormSnapshot(plan.getFingerprint(), FormSnapshot.tailDigest(pdf, layout), layout,
+        values, results);
+  }
+}
@@ -0,0 +1,81 @@
+package com.tylersenter.pdf.incremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.misc.Digests;
+
+/**
+ * A directory of {@link FormSnapshot}s, one per document, keyed by the SHA-256 of the document's
+ * absolute path: a document keeps its snapshot while it is updated in place.
+ *
+ * Snapshots are written to a temporary file and moved into place atomically, so readers only ever
+ * see complete snapshots. Like the result cache, the store is an optimization: snapshots that
+ * cannot be read or written are treated as missing, and the document is validated in full.
+ */
+public class SnapshotStore {
+  private static final String SNAPSHOT_SUFFIX = ".json";
+
+  private Path directory;
+  private ObjectMapper mapper;
+
+  public SnapshotStore(Path directory) throws IOException {
+    this.directory = directory;
+    this.mapper = new ObjectMapper();
+
+    Files.createDirectories(directory);
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return the snapshot of the document taken with the given plan, or null if there is none
+   */
+  public FormSnapshot load(File pdf, ValidationPlan plan) {
+    try {
+      return FormSnapshot.fromJson(mapper.readTree(Files.readAllBytes(snapshotPath(pdf))), plan);
+    } catch (IOException | IllegalArgumentException e) {
+      // Missing, unreadable, or taken with another configuration
+      return null;
+    }
+  }
+
+  public void store(File pdf, FormSnapshot snapshot) {
+    Path snapshotPath = snapshotPath(pdf);
+    Path temporary = null;
+
+    try {
+      byte[] bytes = mapper.writeValueAsBytes(snapshot.toJson());
+
+      temporary = Files.createTempFile(directory, ".snapshot-", ".tmp");
+      Files.write(temporary, bytes);
+      Files.move(temporary, snapshotPath, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temporary = null;
+    } catch (IOException e) {
+      // Not stored, the next run validates the document in full
+    } finally {
+      if (temporary != null) {
+        try {
+          Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+          // left behind, ignored by load
+        }
+      }
+    }
+  }
+
+  private Path snapshotPath(File pdf) {
+    String path = pdf.getAbsolutePath();
+    String key = Digests.toHex(Digests.sha256().digest(path.getBytes(StandardCharsets.UTF_8)));
+
+    return directory.resolve(key + SNAPSHOT_SUFFIX);
+  }
+}
@@ -0,0 +1,262 @@
+package com.tylersenter.pdf.loading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.pdfbox.cos.COSObjectKey;
+
+/**
+ * Where the form of one revision of a document lives in the file: the offset of every object the
+ * form is made of, which objects make up the field hierarchy, and which objects hold the value of
+ * each declared field. A layout is taken while loading a document, see
+ * {@link FormLoader#loadWithLayout(java.io.File, com.tylersenter.pdf.FormBinding)}, and lets
+ * {@link FormLoader#loadUpdate(java.io.File, FormLayout, com.tylersenter.pdf.FormBinding, Set)}
+ * read an incremental update appended to that revision without parsing the document again.
+ *
+ * Like the loader, the layout only covers the fields at the root of the form.
+ */
+public class FormLayout {
+  private final long length;
+  private final long startxref;
+  private final Map<COSObjectKey, Long> offsets;
+  private final COSObjectKey root;
+  // Null when the AcroForm is a direct object of the catalog
+  private final COSObjectKey acroForm;
+  private final List<COSObjectKey> rootFields;
+  private final Set<COSObjectKey> structure;
+  private final Map<String, List<COSObjectKey>> fieldObjects;
+  private final Map<COSObjectKey, String> partialNames;
+  private final Map<COSObjectKey, String> owners;
+
+  /**
+   * @param offsets the offset of every object of the form, negative for the number of the object
+   *        stream holding the object, as in a cross-reference table
+   * @param rootFields the elements of the AcroForm's <code>/Fields</code> array
+   * @param structure the objects that make up the field hierarchy, that is non-terminal fields and
+   *        indirect field arrays
+   * @param fieldObjects the objects holding the value of every declared field found, the field
+   *        dictionary first
+   * @param partialNames the partial name of every terminal field at the root of the form
+   */
+  FormLayout(long length, long startxref, Map<COSObjectKey, Long> offsets, COSObjectKey root,
+      COSObjectKey acroForm, List<COSObjectKey> rootFields, Set<COSObjectKey> structure,
+      Map<String, List<COSObjectKey>> fieldObjects, Map<COSObjectKey, String> partialNames) {
+    this.length = length;
+    this.startxref = startxref;
+    this.offsets = Collections.unmodifiableMap(offsets);
+    this.root = root;
+    this.acroForm = acroForm;
+    this.rootFields = Collections.unmodifiableList(rootFields);
+    this.structure = Collections.unmodifiableSet(structure);
+    this.fieldObjects = Collections.unmodifiableMap(fieldObjects);
+    this.partialNames = Collections.unmodifiableMap(partialNames);
+
+    Map<COSObjectKey, String> owners = new HashMap<>();
+    for (Entry<String, List<COSObjectKey>> entry : fieldObjects.entrySet()) {
+      for (COSObjectKey key : entry.getValue()) {
+        owners.put(key, entry.getKey());
+      }
+    }
+    this.owners = Collections.unmodifiableMap(owners);
+  }
+
+  /**
+   * @return the length of the revision in bytes
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @return the offset of the cross-reference section the revision ends with
+   */
+  public long getStartxref() {
+    return startxref;
+  }
+
+  public Map<COSObjectKey, Long> getOffsets() {
+    return offsets;
+  }
+
+  /**
+   * @return the key of the document catalog
+   */
+  public COSObjectKey getRoot() {
+    return root;
+  }
+
+  /**
+   * @return the key of the AcroForm dictionary, or null if it is a direct object of the catalog
+   */
+  public COSObjectKey getAcroForm() {
+    return acroForm;
+  }
+
+  public List<COSObjectKey> getRootFields() {
+    return rootFields;
+  }
+
+  public boolean isStructure(COSObjectKey key) {
+    return structure.contains(key);
+  }
+
+  /**
+   * @return the key of the dictionary of a declared field, or null if the field is not in the
+   *         revision
+   */
+  public COSObjectKey getFieldKey(String fieldName) {
+    List<COSObjectKey> objects = fieldObjects.get(fieldName);
+    return objects == null ? null : objects.get(0);
+  }
+
+  /**
+   * @return the declared field whose value depends on the object, or null
+   */
+  public String getOwner(COSObjectKey key) {
+    return owners.get(key);
+  }
+
+  /**
+   * @return the partial name of a terminal field at the root of the form, or null if the object
+   *         is not one
+   */
+  public String getPartialName(COSObjectKey key) {
+    return partialNames.get(key);
+  }
+
+  /**
+   * @return a layout of a later revision of the document, with the objects of the given fields
+   *         replaced and the offsets of the objects added or moved by the update
+   */
+  FormLayout update(long length, long startxref, Map<COSObjectKey, Long> movedOffsets,
+      Map<String, List<COSObjectKey>> changedFieldObjects) {
+    Map<COSObjectKey, Long> updatedOffsets = new HashMap<>(offsets);
+    updatedOffsets.putAll(movedOffsets);
+
+    Map<String, List<COSObjectKey>> updatedFieldObjects = new LinkedHashMap<>(fieldObjects);
+    updatedFieldObjects.putAll(changedFieldObjects);
+
+    return new FormLayout(length, startxref, updatedOffsets, root, acroForm, rootFields, structure,
+        updatedFieldObjects, partialNames);
+  }
+
+  public ObjectNode toJson() {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("length", length);
+    node.put("startxref", startxref);
+    node.put("root", toString(root));
+    if (acroForm != null) {
+      node.put("acroForm", toString(acroForm));
+    }
+
+    ObjectNode offsetsNode = node.putObject("offsets");
+    for (Entry<COSObjectKey, Long> entry : offsets.entrySet()) {
+      offsetsNode.put(toString(entry.getKey()), entry.getValue());
+    }
+
+    ArrayNode rootFieldsNode = node.putArray("rootFields");
+    for (COSObjectKey key : rootFields) {
+      rootFieldsNode.add(toString(key));
+    }
+
+    ArrayNode structureNode = node.putArray("structure");
+    for (COSObjectKey key : structure) {
+      structureNode.add(toString(key));
+    }
+
+    ObjectNode fieldsNode = node.putObject("fields");
+    for (Entry<String, List<COSObjectKey>> entry : fieldObjects.entrySet()) {
+      ArrayNode objectsNode = fieldsNode.putArray(entry.getKey());
+
+      for (COSObjectKey key : entry.getValue()) {
+        objectsNode.add(toString(key));
+      }
+    }
+
+    ObjectNode partialNamesNode = node.putObject("partialNames");
+    for (Entry<COSObjectKey, String> entry : partialNames.entrySet()) {
+      partialNamesNode.put(toString(entry.getKey()), entry.getValue());
+    }
+
+    return node;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the node is not a layout written by {@link #toJson()}
+   */
+  public static FormLayout fromJson(JsonNode node) {
+    if (!node.path("length").canConvertToLong() || !node.path("startxref").canConvertToLong()) {
+      throw new IllegalArgumentException("Not a form layout");
+    }
+
+    Map<COSObjectKey, Long> offsets = new HashMap<>();
+    Iterator<Entry<String, JsonNode>> offsetsIterator = node.path("offsets").fields();
+    while (offsetsIterator.hasNext()) {
+      Entry<String, JsonNode> entry = offsetsIterator.next();
+      offsets.put(parseKey(entry.getKey()), entry.getValue().asLong());
+    }
+
+    Set<COSObjectKey> structure = new HashSet<>(parseKeys(node.path("structure")));
+
+    Map<String, List<COSObjectKey>> fieldObjects = new LinkedHashMap<>();
+    Iterator<Entry<String, JsonNode>> fieldsIterator = node.path("fields").fields();
+    while (fieldsIterator.hasNext()) {
+      Entry<String, JsonNode> entry = fieldsIterator.next();
+      List<COSObjectKey> objects = parseKeys(entry.getValue());
+
+      if (objects.isEmpty()) {
+        throw new IllegalArgumentException("No objects for the field '" + entry.getKey() + "'");
+      }
+      fieldObjects.put(entry.getKey(), objects);
+    }
+
+    Map<COSObjectKey, String> partialNames = new HashMap<>();
+    Iterator<Entry<String, JsonNode>> namesIterator = node.path("partialNames").fields();
+    while (namesIterator.hasNext()) {
+      Entry<String, JsonNode> entry = namesIterator.next();
+      partialNames.put(parseKey(entry.getKey()), entry.getValue().asText());
+    }
+
+    JsonNode acroFormNode = node.get("acroForm");
+
+    return new FormLayout(node.get("length").asLong(), node.get("startxref").asLong(), offsets,
+        parseKey(node.path("root").asText()),
+        acroFormNode == null ? null : parseKey(acroFormNode.asText()),
+        parseKeys(node.path("rootFields")), structure, fieldObjects, partialNames);
+  }
+
+  private static String toString(COSObjectKey key) {
+    return key.getNumber() + " " + key.getGeneration();
+  }
+
+  private static COSObjectKey parseKey(String text) {
+    int space = text.indexOf(' ');
+
+    try {
+      return new COSObjectKey(Long.parseLong(text.substring(0, space)),
+          Integer.parseInt(text.substring(space + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Not an object key: '" + text + "'");
+    }
+  }
+
+  private static List<COSObjectKey> parseKeys(JsonNode node) {
+    List<COSObjectKey> keys = new ArrayList<>();
+
+    for (JsonNode element : node) {
+      keys.add(parseKey(element.asText()));
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,418 @@
+package com.tylersenter.pdf.loading;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.metrics.Metrics;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDFieldFactory;
+import org.apache.pdfbox.pdmodel.interactive.form.PDNonTerminalField;
+
+/**
+ * Reads the form field values of a PDF into a {@link FormBinding}. Only the AcroForm object graph
+ * is parsed, see {@link FormParser}, and the document is closed as soon as the values have been
+ * copied.
+ *
+ * The memory usage setting controls where PDFBox buffers stream data while parsing. Use
+ * {@link MemoryUsageSetting#setupTempFileOnly()} to keep the heap flat on very large inputs.
+ *
+ * Files are read through a buffered stream by default. A memory mapped loader reads them through a
+ * {@link MappedRandomAccessRead} instead, which saves the copy through the stream buffer and the
+ * garbage it produces when many large files are loaded at once.
+ *
+ * When the preferences prescreen required fields, the walk over the fields stops at the first
+ * empty field that is always required, see {@link FormBinding#getRejectedField()}.
+ *
+ * A document that only grew by incremental updates since it was last loaded can be read from the
+ * {@link FormLayout} taken then, see {@link #loadUpdate(File, FormLayout, FormBinding, Set)}.
+ */
+public class FormLoader {
+  private MemoryUsageSetting memoryUsage;
+  private boolean memoryMapped;
+  private Metrics metrics = Metrics.DISABLED;
+
+  public FormLoader() {
+    this(MemoryUsageSetting.setupMainMemoryOnly());
+  }
+
+  public FormLoader(MemoryUsageSetting memoryUsage) {
+    this(memoryUsage, false);
+  }
+
+  public FormLoader(MemoryUsageSetting memoryUsage, boolean memoryMapped) {
+    this.memoryUsage = memoryUsage;
+    this.memoryMapped = memoryMapped;
+  }
+
+  public MemoryUsageSetting getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * Time the parsing of every document as the {@link Phase#LOAD} phase and the walk over its form
+   * fields as the {@link Phase#TRAVERSE} phase.
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void load(File pdf, FormBinding binding) throws IOException {
+    load(open(pdf), binding);
+  }
+
+  /**
+   * Parse the form of the given source and bind every field found to the binding. The source is
+   * closed before this method returns.
+   */
+  public void load(RandomAccessRead source, FormBinding binding) throws IOException {
+    load(source, binding, false);
+  }
+
+  /**
+   * Load a document as {@link #load(File, FormBinding)} does, and take the layout of its form.
+   */
+  public FormLayout loadWithLayout(File pdf, FormBinding binding) throws IOException {
+    return load(open(pdf), binding, true);
+  }
+
+  /**
+   * Read the incremental updates appended to a document since the revision the layout was taken
+   * from. Only the declared fields whose objects the updates replace are read and bound; the
+   * binding is expected to hold the values of that revision for the other fields.
+   *
+   * @param changedFields collects the names of the fields read
+   * @return the layout of the current revision
+   * @throws IOException if the document cannot be read this way: it is not a later revision of the
+   *         one the layout was taken from, or the updates change the field hierarchy, add, remove
+   *         or rename fields. The binding may then be partially updated; load the document in
+   *         full instead.
+   */
+  public FormLayout loadUpdate(File pdf, FormLayout previous, FormBinding binding,
+      Set<String> changedFields) throws IOException {
+    RandomAccessRead source = open(pdf);
+    ScratchFile scratchFile = new ScratchFile(memoryUsage);
+    PDDocument doc = null;
+
+    try {
+      long start = metrics.start();
+      UpdateParser parser = new UpdateParser(source, scratchFile);
+      Map<COSObjectKey, Long> update = parser.parseUpdate(previous);
+      long length = source.length();
+      long startxref = parser.readStartxref();
+      metrics.record(Phase.LOAD, start);
+
+      Map<String, List<COSObjectKey>> changedObjects = new HashMap<>();
+      Map<COSObjectKey, Long> movedOffsets = new HashMap<>();
+      if (update.isEmpty()) {
+        return previous.update(length, startxref, movedOffsets, changedObjects);
+      }
+
+      start = metrics.start();
+      parser.addOffsets(previous.getOffsets(), update);
+      doc = parser.getPDDocument();
+
+      for (COSObjectKey key : update.keySet()) {
+        if (previous.isStructure(key)) {
+          throw new IOException("The update changes the field hierarchy");
+        }
+
+        String owner = previous.getOwner(key);
+        String partialName = previous.getPartialName(key);
+        if (owner != null) {
+          changedFields.add(owner);
+        } else if (partialName != null) {
+          COSBase field = parser.parse(key).getObject();
+
+          if (!(field instanceof COSDictionary)
+              || !partialName.equals(((COSDictionary) field).getString(COSName.T))) {
+            throw new IOException("The update renames the field '" + partialName + "'");
+          }
+        }
+      }
+
+      PDAcroForm form = new PDAcroForm(doc, findAcroForm(parser, previous, update));
+
+      for (String fieldName : changedFields) {
+        COSObjectKey key = previous.getFieldKey(fieldName);
+        COSBase dictionary = parser.parse(key).getObject();
+
+        if (!(dictionary instanceof COSDictionary)) {
+          throw new IOException("The update removes the field '" + fieldName + "'");
+        }
+
+        List<COSObject> reached = new ArrayList<>();
+        parser.parseObjects(dictionary, false, reached);
+
+        PDField field = PDFieldFactory.createField(form, (COSDictionary) dictionary, null);
+        if (field == null || field instanceof PDNonTerminalField
+            || !fieldName.equals(field.getFullyQualifiedName())) {
+          throw new IOException("The update renames or restructures the field '" + fieldName
+              + "'");
+        }
+        binding.bindField(field);
+
+        List<COSObjectKey> objects = fieldObjects(key, reached);
+        changedObjects.put(fieldName, objects);
+        for (COSObjectKey object : objects) {
+          addOffset(object, parser.getDocument().getXrefTable(), movedOffsets);
+        }
+      }
+
+      for (COSObjectKey key : update.keySet()) {
+        if (previous.getOffsets().containsKey(key)) {
+          addOffset(key, update, movedOffsets);
+        }
+      }
+      metrics.record(Phase.TRAVERSE, start);
+
+      return previous.update(length, startxref, movedOffsets, changedObjects);
+    } finally {
+      if (doc != null) {
+        doc.close();
+      } else {
+        source.close();
+      }
+      scratchFile.close();
+    }
+  }
+
+  private RandomAccessRead open(File pdf) throws IOException {
+    if (memoryMapped) {
+      return new MappedRandomAccessRead(new MappedFile(pdf));
+    }
+    return new RandomAccessBufferedFileInputStream(pdf);
+  }
+
+  private FormLayout load(RandomAccessRead source, FormBinding binding, boolean takesLayout)
+      throws IOException {
+    ScratchFile scratchFile = new ScratchFile(memoryUsage);
+    PDDocument doc = null;
+
+    try {
+      long start = metrics.start();
+      FormParser parser = new FormParser(source, scratchFile, takesLayout);
+      parser.parse();
+      metrics.record(Phase.LOAD, start);
+
+      start = metrics.start();
+      doc = parser.getPDDocument();
+      // No fixups: they may walk the page tree or generate appearances, neither is needed here
+      PDAcroForm form = doc.getDocumentCatalog().getAcroForm(null);
+
+      if (form == null) {
+        throw new IOException("The document does not contain a form");
+      }
+
+      for (PDField field : form.getFields()) {
+        binding.bindField(field);
+
+        if (binding.isRejected()) {
+          break;
+        }
+      }
+
+      FormLayout layout = null;
+      if (takesLayout) {
+        layout = takeLayout(parser, doc, form, binding, source.length());
+      }
+      metrics.record(Phase.TRAVERSE, start);
+
+      return layout;
+    } finally {
+      if (doc != null) {
+        doc.close();
+      } else {
+        source.close();
+      }
+      scratchFile.close();
+    }
+  }
+
+  private static FormLayout takeLayout(FormParser parser, PDDocument doc, PDAcroForm form,
+      FormBinding binding, long length) throws IOException {
+    Map<COSObjectKey, Long> xref = doc.getDocument().getXrefTable();
+    Map<COSObjectKey, Long> offsets = new HashMap<>();
+    Map<COSBase, COSObjectKey> keys = new IdentityHashMap<>();
+
+    for (COSObject object : parser.getFormObjects()) {
+      COSObjectKey key = new COSObjectKey(object);
+
+      keys.put(object.getObject(), key);
+      addOffset(key, xref, offsets);
+    }
+
+    COSObjectKey root = keyOf(doc.getDocument().getTrailer().getItem(COSName.ROOT));
+    if (root == null) {
+      throw new IOException("The document catalog is not an indirect object");
+    }
+    addOffset(root, xref, offsets);
+
+    COSObjectKey acroForm = keyOf(doc.getDocumentCatalog().getCOSObject()
+        .getItem(COSName.ACRO_FORM));
+    Set<COSObjectKey> structure = new HashSet<>();
+    List<COSObjectKey> rootFields = new ArrayList<>();
+
+    COSBase fieldsItem = form.getCOSObject().getItem(COSName.FIELDS);
+    if (fieldsItem instanceof COSObject) {
+      structure.add(keyOf(fieldsItem));
+    }
+    COSBase fields = form.getCOSObject().getDictionaryObject(COSName.FIELDS);
+    if (fields instanceof COSArray) {
+      for (COSBase element : (COSArray) fields) {
+        COSObjectKey key = keyOf(element);
+
+        if (key == null) {
+          // A field written into the array changes along with the dictionary holding it
+          structure.add(acroForm == null ? root : acroForm);
+        } else {
+          rootFields.add(key);
+        }
+      }
+    }
+
+    Map<String, List<COSObjectKey>> fieldObjects = new LinkedHashMap<>();
+    Map<COSObjectKey, String> partialNames = new HashMap<>();
+
+    for (PDField field : form.getFields()) {
+      COSObjectKey key = keys.get(field.getCOSObject());
+
+      if (key == null) {
+        continue;
+      }
+      if (field instanceof PDNonTerminalField) {
+        structure.add(key);
+        continue;
+      }
+
+      partialNames.put(key, field.getPartialName());
+      if (binding.getFields().containsKey(field.getFullyQualifiedName())) {
+        List<COSObject> reached = new ArrayList<>();
+        parser.parseObjects(field.getCOSObject(), false, reached);
+
+        fieldObjects.put(field.getFullyQualifiedName(), fieldObjects(key, reached));
+      }
+    }
+
+    return new FormLayout(length, parser.readStartxref(), offsets, root, acroForm, rootFields,
+        structure, fieldObjects, partialNames);
+  }
+
+  /**
+   * Find the AcroForm of an update and make sure it still holds the same fields.
+   */
+  private static COSDictionary findAcroForm(UpdateParser parser, FormLayout previous,
+      Map<COSObjectKey, Long> update) throws IOException {
+    COSObjectKey root = keyOf(parser.getTrailer().getItem(COSName.ROOT));
+    if (!previous.getRoot().equals(root)) {
+      throw new IOException("The update replaces the document catalog");
+    }
+
+    COSBase acroForm = null;
+    if (previous.getAcroForm() == null || update.containsKey(root)) {
+      COSBase catalog = parser.parse(root).getObject();
+
+      if (catalog instanceof COSDictionary) {
+        acroForm = ((COSDictionary) catalog).getItem(COSName.ACRO_FORM);
+      }
+      if (acroForm == null || (previous.getAcroForm() == null) != (keyOf(acroForm) == null)
+          || (previous.getAcroForm() != null && !previous.getAcroForm().equals(keyOf(acroForm)))) {
+        throw new IOException("The update replaces the form");
+      }
+    }
+    if (previous.getAcroForm() != null) {
+      acroForm = parser.parse(previous.getAcroForm()).getObject();
+    }
+    if (!(acroForm instanceof COSDictionary)) {
+      throw new IOException("The update replaces the form");
+    }
+
+    COSObjectKey holder = previous.getAcroForm() == null ? root : previous.getAcroForm();
+    if (update.containsKey(holder)) {
+      COSBase fields = ((COSDictionary) acroForm).getItem(COSName.FIELDS);
+      if (fields instanceof COSObject) {
+        fields = parser.parse(keyOf(fields)).getObject();
+      }
+
+      List<COSObjectKey> rootFields = new ArrayList<>();
+      if (fields instanceof COSArray) {
+        for (COSBase element : (COSArray) fields) {
+          rootFields.add(keyOf(element));
+        }
+      }
+      if (!rootFields.equals(previous.getRootFields())) {
+        throw new IOException("The update adds or removes fields");
+      }
+    }
+
+    return (COSDictionary) acroForm;
+  }
+
+  /**
+   * @return the key of the field dictionary followed by the keys of the objects reached from it
+   */
+  private static List<COSObjectKey> fieldObjects(COSObjectKey key, List<COSObject> reached) {
+    Set<COSObjectKey> objects = new LinkedHashSet<>();
+    objects.add(key);
+
+    for (COSObject object : reached) {
+      objects.add(new COSObjectKey(object));
+    }
+    return Collections.unmodifiableList(new ArrayList<>(objects));
+  }
+
+  /**
+   * Copy the offset of an object, and that of the object stream holding it if it is compressed.
+   */
+  private static void addOffset(COSObjectKey key, Map<COSObjectKey, Long> from,
+      Map<COSObjectKey, Long> to) {
+    Long offset = from.get(key);
+
+    if (offset == null) {
+      return;
+    }
+    to.put(key, offset);
+
+    if (offset < 0) {
+      COSObjectKey streamKey = new COSObjectKey(-offset, 0);
+      Long streamOffset = from.get(streamKey);
+
+      if (streamOffset != null) {
+        to.put(streamKey, streamOffset);
+      }
+    }
+  }
+
+  /**
+   * @return the key of an indirect object, or null for a direct object
+   */
+  private static COSObjectKey keyOf(COSBase base) {
+    return base instanceof COSObject ? new COSObjectKey((COSObject) base) : null;
+  }
+}
@@ -0,0 +1,152 @@
+package com.tylersenter.pdf.loading;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+
+/**
+ * A parser that only reads the objects reachable from the document's AcroForm. The default parser
+ * eagerly parses every object reachable from the catalog, including all pages, their content
+ * streams and images, which is wasted work when only the form field values are needed.
+ *
+ * Page dictionaries, actions, default resources and XFA data are never followed, so the parsed
+ * object graph is limited to the catalog, the field dictionaries, their widgets and values.
+ *
+ * When asked to, the parser keeps the indirect objects of the form, from which the layout of the
+ * form is taken, see {@link FormLayout}.
+ */
+class FormParser extends PDFParser {
+  private static final Set<COSName> SKIPPED_KEYS = new HashSet<>(Arrays.asList(COSName.P,
+      COSName.A, COSName.AA, COSName.DR, COSName.XFA, COSName.RESOURCES));
+
+  private static final Set<COSName> SKIPPED_TYPES =
+      new HashSet<>(Arrays.asList(COSName.CATALOG, COSName.PAGES, COSName.PAGE));
+
+  private List<COSObject> formObjects;
+
+  public FormParser(RandomAccessRead source, ScratchFile scratchFile) throws IOException {
+    this(source, scratchFile, false);
+  }
+
+  /**
+   * @param recordsObjects whether to keep the indirect objects of the form, see
+   *        {@link #getFormObjects()}
+   */
+  public FormParser(RandomAccessRead source, ScratchFile scratchFile, boolean recordsObjects)
+      throws IOException {
+    super(source, scratchFile);
+
+    if (recordsObjects) {
+      this.formObjects = new ArrayList<>();
+    }
+  }
+
+  /**
+   * @return the indirect objects reachable from the AcroForm, or null if they were not recorded
+   */
+  public List<COSObject> getFormObjects() {
+    return formObjects;
+  }
+
+  /**
+   * @return the offset of the cross-reference section the document ends with
+   */
+  public long readStartxref() throws IOException {
+    source.seek(getStartxrefOffset());
+    readExpectedString("startxref");
+    skipSpaces();
+    return readLong();
+  }
+
+  @Override
+  protected void initialParse() throws IOException {
+    COSDictionary trailer = retrieveTrailer();
+    COSBase base = parseTrailerValuesDynamically(trailer);
+
+    if (!(base instanceof COSDictionary)) {
+      throw new IOException("Expected root dictionary, but got this: " + base);
+    }
+    COSDictionary root = (COSDictionary) base;
+
+    parseObjects(root.getItem(COSName.ACRO_FORM), true, formObjects);
+
+    document.setDecrypted();
+    initialParseDone = true;
+  }
+
+  /**
+   * Parse every object of the form reachable from the given one, which may already be parsed.
+   *
+   * @param followsParents whether to follow the <code>/Parent</code> entries of fields, which lead
+   *        to their siblings
+   * @param reached collects every indirect object reached, or null
+   */
+  void parseObjects(COSBase start, boolean followsParents, List<COSObject> reached)
+      throws IOException {
+    Deque<COSBase> queue = new ArrayDeque<>();
+    Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+
+    if (start != null) {
+      queue.add(start);
+    }
+
+    while (!queue.isEmpty()) {
+      COSBase base = queue.poll();
+
+      if (!visited.add(base)) {
+        continue;
+      }
+
+      if (base instanceof COSObject) {
+        COSObject object = (COSObject) base;
+        COSBase resolved = object.getObject();
+
+        if (resolved == null) {
+          resolved = parseObjectDynamically(object, false);
+        }
+        if (resolved != null) {
+          queue.add(resolved);
+
+          if (reached != null) {
+            reached.add(object);
+          }
+        }
+      } else if (base instanceof COSDictionary) {
+        COSDictionary dictionary = (COSDictionary) base;
+
+        if (SKIPPED_TYPES.contains(dictionary.getCOSName(COSName.TYPE))) {
+          continue;
+        }
+
+        for (Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+          if (!SKIPPED_KEYS.contains(entry.getKey()) && entry.getValue() != null
+              && (followsParents || !COSName.PARENT.equals(entry.getKey()))) {
+            queue.add(entry.getValue());
+          }
+        }
+      } else if (base instanceof COSArray) {
+        for (COSBase element : (COSArray) base) {
+          if (element != null) {
+            queue.add(element);
+          }
+        }
+      }
+    }
+  }
+}
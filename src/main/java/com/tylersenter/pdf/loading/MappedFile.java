@@ -0,0 +1,72 @@
+package com.tylersenter.pdf.loading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only memory mapping of a whole file. A single {@link MappedByteBuffer} is limited to 2 GB,
+ * so the file is mapped as a sequence of fixed size chunks and addressed with <code>long</code>
+ * positions.
+ *
+ * The mapping itself is never modified and can be shared between threads. Readers that need a
+ * position of their own should use {@link #newBuffers()}.
+ */
+public class MappedFile {
+  static final int CHUNK_SHIFT = 30;
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private File file;
+  private long length;
+  private MappedByteBuffer[] chunks;
+
+  public MappedFile(File file) throws IOException {
+    this.file = file;
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      this.length = channel.size();
+
+      int chunkCount = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+      this.chunks = new MappedByteBuffer[chunkCount];
+
+      for (int i = 0; i < chunkCount; i++) {
+        long offset = (long) i << CHUNK_SHIFT;
+        chunks[i] = channel.map(MapMode.READ_ONLY, offset, Math.min(CHUNK_SIZE, length - offset));
+      }
+    }
+    // The mapping stays valid after the channel is closed
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public long length() {
+    return length;
+  }
+
+  /**
+   * @return the byte at the given absolute position
+   */
+  public byte get(long position) {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+  }
+
+  /**
+   * @return independent views of every chunk, each with its own position and limit
+   */
+  public ByteBuffer[] newBuffers() {
+    ByteBuffer[] buffers = new ByteBuffer[chunks.length];
+
+    for (int i = 0; i < chunks.length; i++) {
+      buffers[i] = chunks[i].duplicate();
+    }
+    return buffers;
+  }
+}
@@ -0,0 +1,136 @@
+package com.tylersenter.pdf.loading;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.pdfbox.io.RandomAccessRead;
+
+/**
+ * A PDFBox {@link RandomAccessRead} reading directly from a {@link MappedFile}. Bytes are copied
+ * straight from the mapped pages into the parser's buffers, without an intermediate stream buffer.
+ */
+public class MappedRandomAccessRead implements RandomAccessRead {
+  private MappedFile file;
+  private ByteBuffer[] buffers;
+  private long length;
+  private long position;
+  private boolean closed;
+
+  public MappedRandomAccessRead(MappedFile file) {
+    this.file = file;
+    this.buffers = file.newBuffers();
+    this.length = file.length();
+  }
+
+  public int read() throws IOException {
+    checkClosed();
+
+    if (position >= length) {
+      return -1;
+    }
+    return file.get(position++) & 0xff;
+  }
+
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  public int read(byte[] b, int offset, int len) throws IOException {
+    checkClosed();
+
+    if (position >= length) {
+      return -1;
+    }
+
+    int total = (int) Math.min(len, length - position);
+    int remaining = total;
+
+    while (remaining > 0) {
+      ByteBuffer buffer = buffers[(int) (position >>> MappedFile.CHUNK_SHIFT)];
+      int chunkOffset = (int) (position & MappedFile.CHUNK_MASK);
+      int count = Math.min(remaining, buffer.capacity() - chunkOffset);
+
+      buffer.position(chunkOffset);
+      buffer.get(b, offset, count);
+
+      position += count;
+      offset += count;
+      remaining -= count;
+    }
+
+    return total;
+  }
+
+  public long getPosition() throws IOException {
+    checkClosed();
+    return position;
+  }
+
+  public void seek(long position) throws IOException {
+    checkClosed();
+
+    if (position < 0) {
+      throw new IOException("Invalid position " + position);
+    }
+    this.position = position;
+  }
+
+  public long length() throws IOException {
+    checkClosed();
+    return length;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public int peek() throws IOException {
+    int result = read();
+
+    if (result != -1) {
+      rewind(1);
+    }
+    return result;
+  }
+
+  public void rewind(int bytes) throws IOException {
+    checkClosed();
+    seek(position - bytes);
+  }
+
+  public byte[] readFully(int len) throws IOException {
+    byte[] bytes = new byte[len];
+    int offset = 0;
+
+    while (offset < len) {
+      int count = read(bytes, offset, len - offset);
+
+      if (count < 0) {
+        throw new EOFException();
+      }
+      offset += count;
+    }
+    return bytes;
+  }
+
+  public boolean isEOF() throws IOException {
+    return peek() == -1;
+  }
+
+  public int available() throws IOException {
+    checkClosed();
+    return (int) Math.min(Math.max(length - position, 0), Integer.MAX_VALUE);
+  }
+
+  public void close() throws IOException {
+    // The mapping is released once it becomes unreachable, there is no way to unmap it explicitly
+    closed = true;
+    buffers = null;
+  }
+
+  private void checkClosed() throws IOException {
+    if (closed) {
+      throw new IOException("The mapped file " + file.getFile() + " has been closed");
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.tylersenter.pdf.loading;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFXrefStreamParser;
+import org.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
+
+/**
+ * A parser for the incremental updates appended to a revision of a document whose
+ * {@link FormLayout} is known. Only the cross-reference sections written after that revision are
+ * read. Objects are then parsed on demand, at the offsets given by the update or, for the objects
+ * it does not replace, at the offsets recorded in the layout; the rest of the document is never
+ * read.
+ *
+ * The parser is strict: an offset that does not point to the expected object is an error rather
+ * than a reason to scan the whole file.
+ */
+class UpdateParser extends FormParser {
+  private COSDictionary trailer;
+
+  public UpdateParser(RandomAccessRead source, ScratchFile scratchFile) throws IOException {
+    super(source, scratchFile);
+    setLenient(false);
+  }
+
+  /**
+   * Read the cross-reference sections appended after the revision, from the newest down to the
+   * one the revision ended with.
+   *
+   * @return the offset of every object written by the update, empty if nothing was appended
+   * @throws IOException if the sections do not lead back to the revision, which is then not a
+   *         previous version of this document, or if the update is encrypted
+   */
+  public Map<COSObjectKey, Long> parseUpdate(FormLayout previous) throws IOException {
+    long startxref = readStartxref();
+    Set<Long> visited = new HashSet<>();
+
+    long offset = startxref;
+    while (offset != previous.getStartxref()) {
+      if (offset < previous.getLength() || !visited.add(offset)) {
+        throw new IOException("The document is not an update of the previous revision");
+      }
+      offset = parseSection(offset).getLong(COSName.PREV, -1);
+    }
+
+    if (visited.isEmpty()) {
+      return new HashMap<>();
+    }
+
+    xrefTrailerResolver.setStartxref(startxref);
+    trailer = xrefTrailerResolver.getTrailer();
+    document.setTrailer(trailer);
+
+    if (trailer.containsKey(COSName.ENCRYPT)) {
+      throw new IOException("Encrypted updates are not supported");
+    }
+
+    return new HashMap<>(xrefTrailerResolver.getXrefTable());
+  }
+
+  /**
+   * @return the trailer of the update, or null if nothing was appended
+   */
+  public COSDictionary getTrailer() {
+    return trailer;
+  }
+
+  /**
+   * Make the objects of the revision and of the update available to {@link #parse(COSObjectKey)},
+   * objects of the update replacing those of the revision.
+   */
+  public void addOffsets(Map<COSObjectKey, Long> revision, Map<COSObjectKey, Long> update) {
+    document.addXRefTable(revision);
+    document.addXRefTable(update);
+  }
+
+  /**
+   * Parse a single object. The objects it refers to are not parsed.
+   */
+  public COSObject parse(COSObjectKey key) throws IOException {
+    COSObject object = document.getObjectFromPool(key);
+
+    if (object.getObject() == null) {
+      parseObjectDynamically(object, false);
+    }
+    return object;
+  }
+
+  /**
+   * Parse the section at the given offset, a cross-reference table with its trailer or a
+   * cross-reference stream, and add its entries to the resolver.
+   *
+   * @return the trailer of the section
+   */
+  private COSDictionary parseSection(long offset) throws IOException {
+    source.seek(offset);
+
+    if (parseXrefTable(offset)) {
+      skipSpaces();
+      readExpectedString("trailer");
+      skipSpaces();
+
+      COSDictionary sectionTrailer = parseCOSDictionary();
+      xrefTrailerResolver.setTrailer(sectionTrailer);
+
+      // A hybrid file lists the objects of its object streams in a separate stream
+      long streamOffset = sectionTrailer.getLong(COSName.XREF_STM, -1);
+      if (streamOffset > 0) {
+        source.seek(streamOffset);
+        parseXrefStream(streamOffset, false);
+      }
+      return sectionTrailer;
+    }
+
+    return parseXrefStream(offset, true);
+  }
+
+  private COSStream parseXrefStream(long offset, boolean isSection) throws IOException {
+    readObjectNumber();
+    readGenerationNumber();
+    readExpectedString(OBJ_MARKER, true);
+
+    COSDictionary dictionary = parseCOSDictionary();
+    if (!COSName.XREF.equals(dictionary.getCOSName(COSName.TYPE))) {
+      throw new IOException("Expected a cross-reference section at offset " + offset);
+    }
+    COSStream stream = parseCOSStream(dictionary);
+
+    if (isSection) {
+      xrefTrailerResolver.nextXrefObj(offset, XRefType.STREAM);
+      xrefTrailerResolver.setTrailer(stream);
+    }
+    new PDFXrefStreamParser(stream, document, xrefTrailerResolver).parse();
+    stream.close();
+
+    return stream;
+  }
+}
@@ -0,0 +1,86 @@
+package com.tylersenter.pdf.metrics;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The counts of a {@link LatencyHistogram} at one point in time. Percentiles are estimated from the
+ * buckets and are at most twice the true value.
+ */
+public class HistogramSnapshot {
+  private final long count;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final long[] buckets;
+
+  HistogramSnapshot(long count, long totalNanos, long maxNanos, long[] buckets) {
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.buckets = buckets;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  public long getMeanNanos() {
+    return count == 0 ? 0 : totalNanos / count;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the upper bound of the bucket holding the percentile, capped at the maximum
+   */
+  public long getPercentileNanos(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("The percentile must be between 0 and 100");
+    }
+
+    long total = 0;
+    for (long bucket : buckets) {
+      total += bucket;
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+
+      if (seen >= rank) {
+        // The last bucket is open ended
+        if (i == buckets.length - 1) {
+          return maxNanos;
+        }
+        return Math.min((1L << (i + 1)) - 1, maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  public ObjectNode toJson() {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+
+    node.put("count", count);
+    node.put("totalNanos", totalNanos);
+    node.put("meanNanos", getMeanNanos());
+    node.put("p50Nanos", getPercentileNanos(50));
+    node.put("p90Nanos", getPercentileNanos(90));
+    node.put("p99Nanos", getPercentileNanos(99));
+    node.put("maxNanos", maxNanos);
+
+    return node;
+  }
+}
@@ -0,0 +1,64 @@
+package com.tylersenter.pdf.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counts durations in power of two buckets of nanoseconds. Every counter is a striped adder, so
+ * recording from many threads at once does not contend on a single memory location and never
+ * blocks.
+ */
+public class LatencyHistogram {
+  // Bucket i holds durations in [2^i, 2^(i + 1)) ns, the last one everything from about 9 minutes
+  static final int BUCKETS = 40;
+
+  private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+    public long applyAsLong(long left, long right) {
+      return Math.max(left, right);
+    }
+  };
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(MAX, 0);
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+    buckets[bucketOf(nanos)].increment();
+  }
+
+  /**
+   * Copy the current counts. Recording may continue concurrently, in which case the copy can be off
+   * by the durations recorded while it is taken.
+   */
+  public HistogramSnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+    }
+
+    return new HistogramSnapshot(count.sum(), totalNanos.sum(), maxNanos.get(), counts);
+  }
+
+  static int bucketOf(long nanos) {
+    if (nanos == 0) {
+      return 0;
+    }
+    return Math.min(63 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+  }
+}
@@ -0,0 +1,120 @@
+package com.tylersenter.pdf.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.tylersenter.pdf.validations.FieldValidation;
+
+/**
+ * Timings of the validation pipeline: one histogram per {@link Phase}, per validation type and per
+ * field name. A single instance is shared by every thread validating documents.
+ *
+ * Instrumented code brackets the work it measures with {@link #start()} and one of the
+ * <code>record</code> methods. On {@link #DISABLED} both return immediately without reading the
+ * clock, so leaving the calls in place costs next to nothing when metrics are turned off.
+ */
+public class Metrics {
+  public static enum Phase {
+    COMPILE("compile"), LOAD("load"), TRAVERSE("traverse"), VALIDATE("validate"),
+    SERIALIZE("serialize");
+
+    private String label;
+
+    private Phase(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  public static final Metrics DISABLED = new Metrics(false);
+
+  private final boolean enabled;
+  private final LatencyHistogram[] phases;
+  private final ConcurrentMap<Class<?>, LatencyHistogram> validations;
+  private final ConcurrentMap<String, LatencyHistogram> fields;
+
+  public Metrics() {
+    this(true);
+  }
+
+  private Metrics(boolean enabled) {
+    this.enabled = enabled;
+    this.phases = new LatencyHistogram[Phase.values().length];
+    this.validations = new ConcurrentHashMap<>();
+    this.fields = new ConcurrentHashMap<>();
+
+    for (int i = 0; i < phases.length; i++) {
+      phases[i] = new LatencyHistogram();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the start time to pass to a <code>record</code> method
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  public void record(Phase phase, long start) {
+    if (!enabled) {
+      return;
+    }
+    phases[phase.ordinal()].record(System.nanoTime() - start);
+  }
+
+  public void recordValidation(FieldValidation validation, long start) {
+    if (!enabled) {
+      return;
+    }
+    histogram(validations, validation.getClass()).record(System.nanoTime() - start);
+  }
+
+  /**
+   * Record the time taken by all validations of a field.
+   */
+  public void recordField(String fieldName, long start) {
+    if (!enabled) {
+      return;
+    }
+    histogram(fields, fieldName).record(System.nanoTime() - start);
+  }
+
+  public MetricsSnapshot snapshot() {
+    MetricsSnapshot snapshot = new MetricsSnapshot();
+
+    for (Phase phase : Phase.values()) {
+      snapshot.putPhase(phase, phases[phase.ordinal()].snapshot());
+    }
+    for (Map.Entry<Class<?>, LatencyHistogram> entry : validations.entrySet()) {
+      snapshot.putValidation(entry.getKey().getName(), entry.getValue().snapshot());
+    }
+    for (Map.Entry<String, LatencyHistogram> entry : fields.entrySet()) {
+      snapshot.putField(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    return snapshot;
+  }
+
+  private static <K> LatencyHistogram histogram(ConcurrentMap<K, LatencyHistogram> histograms,
+      K key) {
+    LatencyHistogram histogram = histograms.get(key);
+
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+
+      LatencyHistogram existing = histograms.putIfAbsent(key, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+
+    return histogram;
+  }
+}
@@ -0,0 +1,71 @@
+package com.tylersenter.pdf.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.metrics.Metrics.Phase;
+
+/**
+ * The histograms of a {@link Metrics} instance at one point in time. Validation types and fields
+ * are sorted by name; only the ones that have been recorded at least once are present.
+ */
+public class MetricsSnapshot {
+  private final Map<Phase, HistogramSnapshot> phases = new LinkedHashMap<>();
+  private final Map<String, HistogramSnapshot> validations = new TreeMap<>();
+  private final Map<String, HistogramSnapshot> fields = new TreeMap<>();
+
+  MetricsSnapshot() {
+  }
+
+  void putPhase(Phase phase, HistogramSnapshot histogram) {
+    phases.put(phase, histogram);
+  }
+
+  void putValidation(String type, HistogramSnapshot histogram) {
+    validations.put(type, histogram);
+  }
+
+  void putField(String fieldName, HistogramSnapshot histogram) {
+    fields.put(fieldName, histogram);
+  }
+
+  public HistogramSnapshot getPhase(Phase phase) {
+    return phases.get(phase);
+  }
+
+  /**
+   * @return the histograms keyed by the fully qualified class name of the validation
+   */
+  public Map<String, HistogramSnapshot> getValidations() {
+    return Collections.unmodifiableMap(validations);
+  }
+
+  public Map<String, HistogramSnapshot> getFields() {
+    return Collections.unmodifiableMap(fields);
+  }
+
+  public ObjectNode toJson() {
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+
+    ObjectNode phasesNode = root.putObject("phases");
+    for (Entry<Phase, HistogramSnapshot> entry : phases.entrySet()) {
+      phasesNode.set(entry.getKey().getLabel(), entry.getValue().toJson());
+    }
+
+    ObjectNode validationsNode = root.putObject("validations");
+    for (Entry<String, HistogramSnapshot> entry : validations.entrySet()) {
+      validationsNode.set(entry.getKey(), entry.getValue().toJson());
+    }
+
+    ObjectNode fieldsNode = root.putObject("fields");
+    for (Entry<String, HistogramSnapshot> entry : fields.entrySet()) {
+      fieldsNode.set(entry.getKey(), entry.getValue().toJson());
+    }
+
+    return root;
+  }
+}
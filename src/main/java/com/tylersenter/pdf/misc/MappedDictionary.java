@@ -0,0 +1,120 @@
+package com.tylersenter.pdf.misc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.tylersenter.pdf.loading.MappedFile;
+
+/**
+ * A sorted word list searched directly in a memory mapped file. The file holds one UTF-8 entry per
+ * line (<code>\n</code> or <code>\r\n</code> line breaks) and must be sorted by byte value, eg. with
+ * <code>LC_ALL=C sort</code>. Lookups are a binary search over the mapped bytes, so the heap used
+ * does not depend on the size of the dictionary and opening it does not read the entries.
+ *
+ * Dictionaries are shared: opening the same unchanged file twice returns the same mapping. Only
+ * the latest version of a file is kept for sharing, so when a changed file is opened again, for
+ * example by a configuration reload, the previous mapping is released once the plans using it are
+ * gone.
+ */
+public class MappedDictionary {
+  private static final ConcurrentMap<String, MappedDictionary> OPEN_DICTIONARIES =
+      new ConcurrentHashMap<>();
+
+  private MappedFile file;
+  private long length;
+  // The modification time and length of the file when it was mapped
+  private String version;
+
+  private MappedDictionary(MappedFile file, String version) {
+    this.file = file;
+    this.length = file.length();
+    this.version = version;
+  }
+
+  /**
+   * Map a dictionary file, or return the existing mapping if the same file has already been opened
+   * and has not been modified since.
+   */
+  public static MappedDictionary open(File file) throws IOException {
+    String path = file.getCanonicalPath();
+    String version = file.lastModified() + ":" + file.length();
+
+    while (true) {
+      MappedDictionary current = OPEN_DICTIONARIES.get(path);
+      if (current != null && current.version.equals(version)) {
+        return current;
+      }
+
+      MappedDictionary dictionary = new MappedDictionary(new MappedFile(file), version);
+
+      // Replaces the mapping of an older version, which is unmapped once it is no longer used
+      if (current == null ? OPEN_DICTIONARIES.putIfAbsent(path, dictionary) == null
+          : OPEN_DICTIONARIES.replace(path, current, dictionary)) {
+        return dictionary;
+      }
+    }
+  }
+
+  public File getFile() {
+    return file.getFile();
+  }
+
+  public boolean contains(String value) {
+    byte[] key = value.getBytes(StandardCharsets.UTF_8);
+
+    // Search the lines starting in [low, high)
+    long low = 0;
+    long high = length;
+
+    while (low < high) {
+      long middle = low + (high - low) / 2;
+
+      long lineStart = middle;
+      while (lineStart > low && file.get(lineStart - 1) != '\n') {
+        lineStart--;
+      }
+
+      long lineEnd = lineStart;
+      while (lineEnd < length && file.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+
+      int comparison = compareLine(lineStart, lineEnd, key);
+      if (comparison == 0) {
+        return true;
+      }
+
+      if (comparison < 0) {
+        low = lineEnd + 1;
+      } else {
+        high = lineStart;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Compare the line in [start, end) with the key, byte by byte as unsigned values.
+   */
+  private int compareLine(long start, long end, byte[] key) {
+    if (end > start && file.get(end - 1) == '\r') {
+      end--;
+    }
+
+    long lineLength = end - start;
+    int common = (int) Math.min(lineLength, key.length);
+
+    for (int i = 0; i < common; i++) {
+      int difference = (file.get(start + i) & 0xff) - (key[i] & 0xff);
+
+      if (difference != 0) {
+        return difference;
+      }
+    }
+
+    return Long.compare(lineLength, key.length);
+  }
+}
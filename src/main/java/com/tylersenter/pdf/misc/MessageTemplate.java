@@ -0,0 +1,141 @@
+package com.tylersenter.pdf.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.tylersenter.pdf.FormField;
+
+/**
+ * A message parsed once into a sequence of literal and variable segments, eg.
+ * <code>"The field {{fieldName}} is valid."</code> becomes the literal <code>"The field "</code>,
+ * the variable <code>fieldName</code> and the literal <code>" is valid."</code>. Each variable is
+ * bound to its resolver when the template is compiled, so rendering is a single pass appending to a
+ * reused buffer. Templates are immutable and can be shared between threads.
+ */
+public class MessageTemplate {
+  private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{([A-z]+)\\}\\}");
+
+  private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+    @Override
+    protected StringBuilder initialValue() {
+      return new StringBuilder(128);
+    }
+  };
+
+  private final String source;
+  // A segment is a literal if its variable name is null
+  private final String[] literals;
+  private final String[] variables;
+  private final VariableResolver[] resolvers;
+  private final boolean literal;
+
+  private MessageTemplate(String source, String[] literals, String[] variables,
+      VariableResolver[] resolvers) {
+    this.source = source;
+    this.literals = literals;
+    this.variables = variables;
+    this.resolvers = resolvers;
+
+    boolean hasVariables = false;
+    for (String variable : variables) {
+      hasVariables |= variable != null;
+    }
+    this.literal = !hasVariables;
+  }
+
+  /**
+   * Compile a message, binding every variable to the resolver registered for its name.
+   *
+   * @throws IllegalArgumentException if the message uses a variable that has no resolver
+   */
+  public static MessageTemplate compile(String message, Map<String, VariableResolver> resolvers) {
+    return compile(message, resolvers, null);
+  }
+
+  /**
+   * Compile a message, binding every variable to the same resolver.
+   */
+  public static MessageTemplate compile(String message, VariableResolver resolver) {
+    return compile(message, null, resolver);
+  }
+
+  private static MessageTemplate compile(String message, Map<String, VariableResolver> resolvers,
+      VariableResolver resolver) {
+    List<String> literals = new ArrayList<>();
+    List<String> variables = new ArrayList<>();
+    List<VariableResolver> boundResolvers = new ArrayList<>();
+
+    Matcher matcher = VARIABLE_PATTERN.matcher(message);
+    int literalStart = 0;
+
+    while (matcher.find()) {
+      String varName = matcher.group(1);
+      VariableResolver variableResolver = resolver;
+
+      if (resolvers != null) {
+        variableResolver = resolvers.get(varName);
+
+        if (variableResolver == null) {
+          throw new IllegalArgumentException("The variable '" + varName + "' is undefined.");
+        }
+      }
+
+      if (matcher.start() > literalStart) {
+        literals.add(message.substring(literalStart, matcher.start()));
+        variables.add(null);
+        boundResolvers.add(null);
+      }
+      literals.add(null);
+      variables.add(varName);
+      boundResolvers.add(variableResolver);
+
+      literalStart = matcher.end();
+    }
+
+    if (literalStart < message.length()) {
+      literals.add(message.substring(literalStart));
+      variables.add(null);
+      boundResolvers.add(null);
+    }
+
+    return new MessageTemplate(message, literals.toArray(new String[literals.size()]),
+        variables.toArray(new String[variables.size()]),
+        boundResolvers.toArray(new VariableResolver[boundResolvers.size()]));
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return whether the message contains no variables, in which case it renders to its source
+   */
+  public boolean isLiteral() {
+    return literal;
+  }
+
+  public String render(FormField field) {
+    if (literal) {
+      return source;
+    }
+
+    StringBuilder buffer = BUFFER.get();
+    buffer.setLength(0);
+
+    for (int i = 0; i < variables.length; i++) {
+      if (variables[i] == null) {
+        buffer.append(literals[i]);
+        continue;
+      }
+
+      String value = resolvers[i].resolveVariable(field, variables[i]);
+      if (value != null) {
+        buffer.append(value);
+      }
+    }
+
+    return buffer.toString();
+  }
+}
@@ -1,40 +1,49 @@
 package com.tylersenter.pdf.misc;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import com.tylersenter.pdf.FormField;
 
 public class VariableUtils {
-  private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{([A-z]+)\\}\\}");
-
-  private static VariableResolver DEFAULT_RESOLVER = new VariableResolver() {
-    public String resolveVariable(FormField field, String variable) {
-      switch (variable) {
-        case "fieldName":
-          return field.getField().getFullyQualifiedName();
-        case "fieldValue":
-          return field.valueAsString();
+  private static final Map<String, VariableResolver> RESOLVERS = new ConcurrentHashMap<>();
+
+  static {
+    registerResolver("fieldName", new VariableResolver() {
+      public String resolveVariable(FormField field, String variable) {
+        // Fields are bound by their fully qualified name
+        return field.getName();
+      }
+    });
+    registerResolver("fieldValue", new VariableResolver() {
+      public String resolveVariable(FormField field, String variable) {
+        return field.valueAsString();
       }
+    });
+  }
 
-      throw new IllegalArgumentException("The variable '" + variable + "' is undefined.");
-    }
-  };
+  /**
+   * Make a variable available to every message compiled after this call.
+   */
+  public static void registerResolver(String variable, VariableResolver resolver) {
+    RESOLVERS.put(variable, resolver);
+  }
+
+  /**
+   * Compile a message against the registered variables.
+   *
+   * @throws IllegalArgumentException if the message uses an undefined variable
+   */
+  public static MessageTemplate compile(String message) {
+    return MessageTemplate.compile(message, RESOLVERS);
+  }
 
   public static String replaceVariables(FormField field, String message) {
-    return replaceVariables(field, message, DEFAULT_RESOLVER);
+    return compile(message).render(field);
   }
 
   public static String replaceVariables(FormField field, String message,
       VariableResolver resolver) {
-    Matcher matcher = VARIABLE_PATTERN.matcher(message);
-
-    while (matcher.find()) {
-      String varName = matcher.group(1);
-
-      message = message.replace(matcher.group(), resolver.resolveVariable(field, varName));
-    }
-
-    return message;
+    return MessageTemplate.compile(message, resolver).render(field);
   }
 
 }
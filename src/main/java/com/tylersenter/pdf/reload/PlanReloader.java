@@ -0,0 +1,325 @@
+package com.tylersenter.pdf.reload;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.ValidationPlan;
+
+/**
+ * Holds the current plan of a configuration file and compiles the file again, on a background
+ * thread, whenever it changes.
+ *
+ * A new plan is published with a single atomic swap, so callers never wait for a compilation:
+ * documents that already took the plan with {@link #getRevision()} finish on it, and the next ones
+ * take the new one. A file that cannot be read or compiled is rejected and the current plan is
+ * kept; the file is compiled again on its next change.
+ *
+ * A change is compiled once the file's size and modification time have not changed for the settle
+ * delay, so an editor still writing the file does not cause a spurious rejection. Only the
+ * configuration file is watched: a dictionary file changed on its own is picked up with the next
+ * change of the configuration.
+ */
+public class PlanReloader {
+  public static final long DEFAULT_SETTLE_MILLIS = 500;
+
+  private static final long POLL_MILLIS = 200;
+
+  /**
+   * Reads and compiles the configuration file, the first time and on every change.
+   */
+  public static interface PlanCompiler {
+    public ValidationPlan compile(Path configFile) throws IOException;
+  }
+
+  /**
+   * Receives the outcome of every reload, on the reloading thread.
+   */
+  public static interface ReloadListener {
+    public static final ReloadListener NONE = new ReloadListener() {
+      public void reloaded(Revision revision) {
+      }
+
+      public void rejected(Path configFile, Exception e) {
+      }
+    };
+
+    public void reloaded(Revision revision);
+
+    public void rejected(Path configFile, Exception e);
+  }
+
+  /**
+   * A plan together with the version it was published as, starting at 1 for the plan compiled at
+   * startup.
+   */
+  public static class Revision {
+    private final ValidationPlan plan;
+    private final long version;
+    private final long loadedAt;
+    private final long compileNanos;
+
+    private Revision(ValidationPlan plan, long version, long loadedAt, long compileNanos) {
+      this.plan = plan;
+      this.version = version;
+      this.loadedAt = loadedAt;
+      this.compileNanos = compileNanos;
+    }
+
+    public ValidationPlan getPlan() {
+      return plan;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * @return when the plan was published, in milliseconds since the epoch
+     */
+    public long getLoadedAt() {
+      return loadedAt;
+    }
+
+    /**
+     * @return how long reading and compiling the configuration took
+     */
+    public long getCompileNanos() {
+      return compileNanos;
+    }
+  }
+
+  private Path configFile;
+  private PlanCompiler compiler;
+  private long settleMillis;
+  private ReloadListener listener = ReloadListener.NONE;
+
+  private final AtomicReference<Revision> revision = new AtomicReference<>();
+  private volatile int rejectedCount;
+  private volatile String lastRejection;
+
+  // The state of the file when it was last compiled, only used by the reloading thread
+  private FileState compiledState;
+  private Thread thread;
+  private volatile boolean running;
+
+  /**
+   * Compile the configuration file for the first time.
+   *
+   * @throws IOException if the file cannot be read
+   * @throws RuntimeException if the configuration is not valid
+   */
+  public PlanReloader(Path configFile, PlanCompiler compiler) throws IOException {
+    this.configFile = configFile.toAbsolutePath();
+    this.compiler = compiler;
+    this.settleMillis = DEFAULT_SETTLE_MILLIS;
+    this.compiledState = FileState.of(this.configFile);
+
+    long start = System.nanoTime();
+    ValidationPlan plan = compiler.compile(this.configFile);
+    revision.set(new Revision(plan, 1, System.currentTimeMillis(), System.nanoTime() - start));
+  }
+
+  public void setSettleMillis(long settleMillis) {
+    this.settleMillis = settleMillis;
+  }
+
+  public void setReloadListener(ReloadListener listener) {
+    this.listener = listener;
+  }
+
+  public Path getConfigFile() {
+    return configFile;
+  }
+
+  /**
+   * @return the current plan and its version. Take it once per document: the plan may be replaced
+   *         at any time.
+   */
+  public Revision getRevision() {
+    return revision.get();
+  }
+
+  public ValidationPlan getPlan() {
+    return revision.get().getPlan();
+  }
+
+  /**
+   * @return the number of changes of the file that were rejected
+   */
+  public int getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * @return the status of the current plan and of the last rejected change, for monitoring
+   */
+  public ObjectNode toJson() {
+    Revision current = revision.get();
+    ObjectNode status = JsonNodeFactory.instance.objectNode();
+
+    status.put("config", configFile.toString());
+    status.put("version", current.getVersion());
+    status.put("fingerprint", current.getPlan().getFingerprint());
+    status.put("loadedAt", current.getLoadedAt());
+    status.put("compileMillis", TimeUnit.NANOSECONDS.toMillis(current.getCompileNanos()));
+    status.put("rejected", rejectedCount);
+    if (lastRejection != null) {
+      status.put("lastRejection", lastRejection);
+    }
+
+    return status;
+  }
+
+  /**
+   * Start watching the configuration file on a daemon thread.
+   */
+  public synchronized void start() throws IOException {
+    if (thread != null) {
+      throw new IllegalStateException("The reloader is already running");
+    }
+
+    final WatchService watchService = configFile.getFileSystem().newWatchService();
+    try {
+      // Editors often replace the file rather than write it, so watch its directory
+      configFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+
+    running = true;
+    thread = new Thread("reload-" + configFile.getFileName()) {
+      @Override
+      public void run() {
+        try {
+          watch(watchService);
+        } catch (InterruptedException e) {
+          // stopped
+        } finally {
+          try {
+            watchService.close();
+          } catch (IOException e) {
+            // nothing left to release
+          }
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public synchronized void stop() {
+    if (thread == null) {
+      return;
+    }
+
+    running = false;
+    thread.interrupt();
+    thread = null;
+  }
+
+  /**
+   * Compile the configuration file now, regardless of whether it changed.
+   *
+   * @return whether the file was compiled and published
+   */
+  public synchronized boolean reload() {
+    long start = System.nanoTime();
+    ValidationPlan plan;
+
+    try {
+      plan = compiler.compile(configFile);
+    } catch (IOException | RuntimeException e) {
+      reject(e);
+      return false;
+    } catch (LinkageError e) {
+      // A custom validation class that cannot be loaded must not end the reloading thread
+      reject(new IllegalStateException("Could not load a class of the configuration: " + e, e));
+      return false;
+    }
+
+    Revision next = new Revision(plan, revision.get().getVersion() + 1,
+        System.currentTimeMillis(), System.nanoTime() - start);
+    revision.set(next);
+
+    listener.reloaded(next);
+    return true;
+  }
+
+  private void reject(Exception e) {
+    rejectedCount++;
+    lastRejection = String.valueOf(e.getMessage());
+    listener.rejected(configFile, e);
+  }
+
+  private void watch(WatchService watchService) throws InterruptedException {
+    FileState pending = null;
+
+    while (running) {
+      WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (key != null) {
+        key.pollEvents();
+        key.reset();
+      }
+
+      // Events are only a hint, the file is looked at on every round
+      FileState current = FileState.of(configFile);
+      if (current == null || current.isSameAs(compiledState)) {
+        pending = null;
+        continue;
+      }
+      if (pending == null || !current.isSameAs(pending)) {
+        pending = current;
+        continue;
+      }
+      if (System.currentTimeMillis() - pending.seenAt < settleMillis) {
+        continue;
+      }
+
+      // A rejected file is not compiled again until it changes
+      compiledState = pending;
+      pending = null;
+      reload();
+    }
+  }
+
+  private static class FileState {
+    private long size;
+    private long modified;
+    private long seenAt;
+
+    private FileState(long size, long modified, long seenAt) {
+      this.size = size;
+      this.modified = modified;
+      this.seenAt = seenAt;
+    }
+
+    /**
+     * @return the current state of the file, or null if it is missing, for example while an
+     *         editor replaces it
+     */
+    public static FileState of(Path file) {
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis(),
+            System.currentTimeMillis());
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    public boolean isSameAs(FileState other) {
+      return other != null && size == other.size && modified == other.modified;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.tylersenter.pdf.reporting;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.tylersenter.pdf.DependencyGraph;
+import com.tylersenter.pdf.reporting.Report.ReportType;
+
+/**
+ * Writes the reports of a batch as a stream of Smile or CBOR values, in a compact schema meant for
+ * machine consumers. The first value names the declared fields once:
+ *
+ * <pre>
+ * {"version":1,"fields":["name","age","email"]}
+ * </pre>
+ *
+ * followed by one value per document, in which fields are referred to by their position in that
+ * list:
+ *
+ * <pre>
+ * {"file":"a.pdf","valid":false,"warnings":[0],"errors":[[1,"The value 'x' for 'age' is invalid."]]}
+ * </pre>
+ *
+ * An entry is the field's position, or a pair of the position and the message when the report
+ * level outputs messages. Fields that are not declared are given by name instead of position. The
+ * <code>reports</code>, <code>warnings</code> and <code>errors</code> arrays are left out when
+ * empty.
+ *
+ * Smile output shares repeated strings, so a message repeated across documents is encoded once per
+ * stream. CBOR has no back references and repeats them.
+ */
+public class BinaryReportWriter implements Closeable {
+  private static final int FORMAT_VERSION = 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private JsonGenerator generator;
+  private DependencyGraph fields;
+
+  public BinaryReportWriter(OutputStream out, ReportType reportType, DependencyGraph fields)
+      throws IOException {
+    JsonFactory factory;
+
+    switch (reportType) {
+      case SMILE:
+        factory = SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build();
+        break;
+      case CBOR:
+        factory = new CBORFactory();
+        break;
+      default:
+        throw new IllegalArgumentException("Not a binary report type: " + reportType);
+    }
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    this.generator = factory.createGenerator(new BufferedOutputStream(out, BUFFER_SIZE));
+    this.fields = fields;
+
+    generator.writeStartObject();
+    generator.writeNumberField("version", FORMAT_VERSION);
+    generator.writeArrayFieldStart("fields");
+    for (int slot = 0; slot < fields.getFieldCount(); slot++) {
+      generator.writeString(fields.getFieldName(slot));
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  /**
+   * Write a finished, buffered report.
+   */
+  public synchronized void write(Report report) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("file", report.getDocument());
+    generator.writeBooleanField("valid", !report.hasErrors());
+
+    if (report.hasReports()) {
+      writeEntries("reports", report.getReports());
+    }
+    if (report.hasWarnings()) {
+      writeEntries("warnings", report.getWarnings());
+    }
+    if (report.hasErrors()) {
+      writeEntries("errors", report.getErrors());
+    }
+
+    generator.writeEndObject();
+  }
+
+  public synchronized void flush() throws IOException {
+    generator.flush();
+  }
+
+  /**
+   * Flush the buffered output. The underlying stream is left open.
+   */
+  public synchronized void close() throws IOException {
+    generator.close();
+  }
+
+  private void writeEntries(String name, Iterator<ReportEntry> entries) throws IOException {
+    generator.writeArrayFieldStart(name);
+
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+
+      if (entry.getValue() == null) {
+        writeField(entry.getKey());
+      } else {
+        generator.writeStartArray();
+        writeField(entry.getKey());
+        generator.writeString(entry.getValue());
+        generator.writeEndArray();
+      }
+    }
+
+    generator.writeEndArray();
+  }
+
+  private void writeField(String fieldName) throws IOException {
+    int slot = fields.getSlot(fieldName);
+
+    if (slot < 0) {
+      generator.writeString(fieldName);
+    } else {
+      generator.writeNumber(slot);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.tylersenter.pdf.reporting;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import com.tylersenter.pdf.DependencyGraph;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+
+/**
+ * Writes the reports of a batch at the {@link ReportLevel#COMPACT} level: the name of every field
+ * with an error, once per field and on its own line. The names of the declared fields are encoded
+ * once, and the output goes through a buffer, so writing the report of a
+ * {@link FieldBitsetReport} allocates nothing.
+ */
+public class CompactReportWriter implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private OutputStream out;
+  private DependencyGraph fields;
+  private byte[][] encodedNames;
+
+  public CompactReportWriter(OutputStream out, DependencyGraph fields) {
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    this.fields = fields;
+    this.encodedNames = new byte[fields.getFieldCount()][];
+
+    for (int slot = 0; slot < encodedNames.length; slot++) {
+      encodedNames[slot] = encode(fields.getFieldName(slot));
+    }
+  }
+
+  public synchronized void write(Report report) throws IOException {
+    if (report instanceof FieldBitsetReport) {
+      FieldBitsetReport bitsetReport = (FieldBitsetReport) report;
+
+      for (int slot = bitsetReport.nextErrorField(0); slot >= 0;
+          slot = bitsetReport.nextErrorField(slot + 1)) {
+        writeLine(encodedNames[slot]);
+      }
+      for (String fieldName : bitsetReport.getUndeclaredErrorFields()) {
+        writeLine(encode(fieldName));
+      }
+      return;
+    }
+
+    // Errors are grouped by field, so every failing field is printed once
+    String previous = null;
+    Iterator<ReportEntry> errors = report.getErrors();
+    while (errors.hasNext()) {
+      String fieldName = errors.next().getKey();
+
+      if (!fieldName.equals(previous)) {
+        int slot = fields.getSlot(fieldName);
+        writeLine(slot < 0 ? encode(fieldName) : encodedNames[slot]);
+      }
+      previous = fieldName;
+    }
+  }
+
+  public synchronized void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Flush the buffered output. The underlying stream is left open.
+   */
+  public void close() throws IOException {
+    flush();
+  }
+
+  private void writeLine(byte[] fieldName) throws IOException {
+    out.write(fieldName);
+    out.write('\n');
+  }
+
+  private static byte[] encode(String fieldName) {
+    return fieldName.getBytes(StandardCharsets.UTF_8);
+  }
+}
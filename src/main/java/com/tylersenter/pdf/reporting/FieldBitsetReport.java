@@ -0,0 +1,198 @@
+package com.tylersenter.pdf.reporting;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import com.tylersenter.pdf.DependencyGraph;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+
+/**
+ * A report for the levels that never output messages, {@link ReportLevel#EXIT_CODE} and
+ * {@link ReportLevel#COMPACT}. Only which fields have errors or warnings is kept, one bit per
+ * declared field, so recording an entry allocates nothing. Fields are numbered by their slot in the
+ * plan's {@link DependencyGraph}.
+ *
+ * The entries returned by {@link #getErrors()} and {@link #getWarnings()} are created on demand,
+ * one per failing field in declaration order and without a message. Valid field reports are only
+ * counted.
+ */
+public class FieldBitsetReport extends Report {
+  private final DependencyGraph fields;
+  private final long[] errorFields;
+  private final long[] warningFields;
+  // Entries added for names that are not declared, eg. by custom validations
+  private Set<String> undeclaredErrors;
+  private Set<String> undeclaredWarnings;
+
+  private int reportCount;
+  private int warningCount;
+  private int errorCount;
+
+  public FieldBitsetReport(String document, DependencyGraph fields) {
+    super(document);
+    this.fields = fields;
+    this.errorFields = new long[(fields.getFieldCount() + 63) >>> 6];
+    this.warningFields = new long[errorFields.length];
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return false;
+  }
+
+  @Override
+  public Iterator<ReportEntry> getReports() {
+    return Collections.<ReportEntry>emptyList().iterator();
+  }
+
+  @Override
+  public boolean hasReports() {
+    return reportCount > 0;
+  }
+
+  @Override
+  public void addReport(String fieldName, String report) {
+    reportCount++;
+  }
+
+  @Override
+  public Iterator<ReportEntry> getWarnings() {
+    return new FieldIterator(warningFields, undeclaredWarnings);
+  }
+
+  @Override
+  public boolean hasWarnings() {
+    return warningCount > 0;
+  }
+
+  @Override
+  public void addWarning(String fieldName, String warning) {
+    warningCount++;
+
+    if (!mark(warningFields, fieldName)) {
+      if (undeclaredWarnings == null) {
+        undeclaredWarnings = new LinkedHashSet<>();
+      }
+      undeclaredWarnings.add(fieldName);
+    }
+  }
+
+  @Override
+  public int getAddedWarningCount() {
+    return warningCount;
+  }
+
+  @Override
+  public Iterator<ReportEntry> getErrors() {
+    return new FieldIterator(errorFields, undeclaredErrors);
+  }
+
+  @Override
+  public boolean hasErrors() {
+    return errorCount > 0;
+  }
+
+  @Override
+  public void addError(String fieldName, String error) {
+    errorCount++;
+
+    if (!mark(errorFields, fieldName)) {
+      if (undeclaredErrors == null) {
+        undeclaredErrors = new LinkedHashSet<>();
+      }
+      undeclaredErrors.add(fieldName);
+    }
+  }
+
+  @Override
+  public int getAddedErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * Entries are recorded as they are added, there is no current field to complete.
+   */
+  @Override
+  public void next() {
+  }
+
+  /**
+   * @return the first slot at or after the given one holding a field with an error, or -1 if
+   *         there is none
+   */
+  public int nextErrorField(int fromSlot) {
+    return nextSetBit(errorFields, fromSlot);
+  }
+
+  /**
+   * @return the names of the fields with an error that are not declared in the plan
+   */
+  public Set<String> getUndeclaredErrorFields() {
+    if (undeclaredErrors == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(undeclaredErrors);
+  }
+
+  private boolean mark(long[] bits, String fieldName) {
+    int slot = fields.getSlot(fieldName);
+
+    if (slot < 0) {
+      return false;
+    }
+    bits[slot >>> 6] |= 1L << slot;
+    return true;
+  }
+
+  private static int nextSetBit(long[] bits, int fromSlot) {
+    int index = fromSlot >>> 6;
+    if (fromSlot < 0 || index >= bits.length) {
+      return -1;
+    }
+
+    long word = bits[index] & (-1L << fromSlot);
+    while (word == 0) {
+      if (++index == bits.length) {
+        return -1;
+      }
+      word = bits[index];
+    }
+
+    return (index << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  private class FieldIterator implements Iterator<ReportEntry> {
+    private long[] bits;
+    private Iterator<String> undeclared;
+    private int slot;
+
+    public FieldIterator(long[] bits, Set<String> undeclared) {
+      this.bits = bits;
+      this.undeclared = undeclared == null ? null : undeclared.iterator();
+      this.slot = nextSetBit(bits, 0);
+    }
+
+    public boolean hasNext() {
+      return slot >= 0 || (undeclared != null && undeclared.hasNext());
+    }
+
+    public ReportEntry next() {
+      if (slot >= 0) {
+        ReportEntry entry = new ReportEntry(fields.getFieldName(slot), null);
+        slot = nextSetBit(bits, slot + 1);
+        return entry;
+      }
+
+      if (undeclared == null) {
+        throw new NoSuchElementException();
+      }
+      return new ReportEntry(undeclared.next(), null);
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
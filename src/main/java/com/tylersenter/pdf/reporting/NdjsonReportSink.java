@@ -0,0 +1,76 @@
+package com.tylersenter.pdf.reporting;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tylersenter.pdf.reporting.Report.EntryType;
+
+/**
+ * Writes every report entry as a single line of JSON (newline delimited JSON). Each line is tagged
+ * with the document and the field it belongs to, eg.
+ *
+ * <pre>
+ * {"file":"a.pdf","field":"email","type":"error","message":"The value 'x' for 'email' is invalid."}
+ * {"file":"a.pdf","type":"summary","warnings":0,"errors":1}
+ * </pre>
+ *
+ * A single generator is reused for the lifetime of the sink and writes through a buffer, so the
+ * memory used does not grow with the number of entries or documents.
+ */
+public class NdjsonReportSink implements ReportSink {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private JsonGenerator generator;
+
+  public NdjsonReportSink(OutputStream out) throws IOException {
+    JsonFactory factory = new JsonFactory();
+    factory.setRootValueSeparator("");
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    this.generator = factory.createGenerator(new BufferedOutputStream(out, BUFFER_SIZE),
+        JsonEncoding.UTF8);
+  }
+
+  public synchronized void entry(String document, EntryType type, ReportEntry entry) {
+    try {
+      generator.writeStartObject();
+      generator.writeStringField("file", document);
+      generator.writeStringField("field", entry.getKey());
+      generator.writeStringField("type", type.getLabel());
+      // Below the detailed report level, entries carry no message
+      if (entry.getValue() != null) {
+        generator.writeStringField("message", entry.getValue());
+      }
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write report entry for " + document, e);
+    }
+  }
+
+  public synchronized void endDocument(String document, int warningCount, int errorCount) {
+    try {
+      generator.writeStartObject();
+      generator.writeStringField("file", document);
+      generator.writeStringField("type", "summary");
+      generator.writeNumberField("warnings", warningCount);
+      generator.writeNumberField("errors", errorCount);
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write report summary for " + document, e);
+    }
+  }
+
+  public synchronized void flush() throws IOException {
+    generator.flush();
+  }
+
+  public synchronized void close() throws IOException {
+    // AUTO_CLOSE_TARGET is disabled, so this only flushes the buffer into the target stream
+    generator.close();
+  }
+}
@@ -7,12 +7,30 @@ import java.util.List;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
 
 public class Report {
   public static enum ReportType {
-    JSON;
+    JSON, SMILE, CBOR;
   }
 
+  public static enum EntryType {
+    REPORT("report"), WARNING("warning"), ERROR("error");
+
+    private String label;
+
+    private EntryType(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private String document;
+  private ReportSink sink;
+
   private List<ReportEntry> allReports;
   private List<ReportEntry> allWarnings;
   private List<ReportEntry> allErrors;
@@ -21,7 +39,29 @@ public class Report {
   private List<ReportEntry> warnings;
   private List<ReportEntry> errors;
 
+  private int reportCount;
+  private int warningCount;
+  private int errorCount;
+  private int addedWarningCount;
+  private int addedErrorCount;
+
   public Report() {
+    this(null, null);
+  }
+
+  /**
+   * Create a report that streams its entries to the given sink as soon as each field is complete.
+   * A streaming report only keeps the entries of the current field and the entry counts in memory,
+   * so {@link #getReports()}, {@link #getWarnings()} and {@link #getErrors()} are always empty and
+   * {@link #build(ReportType, boolean)} cannot be used.
+   *
+   * @param document the name the entries will be tagged with
+   * @param sink the sink to stream to, or <code>null</code> to buffer the whole report
+   */
+  public Report(String document, ReportSink sink) {
+    this.document = document;
+    this.sink = sink;
+
     this.allReports = new LinkedList<>();
     this.allWarnings = new LinkedList<>();
     this.allErrors = new LinkedList<>();
@@ -31,12 +71,28 @@ public class Report {
     this.errors = new LinkedList<>();
   }
 
+  /**
+   * Constructor for subclasses keeping their entries in a form of their own. Nothing is allocated,
+   * so subclasses must override every method adding or reading entries, as well as {@link #next()}.
+   */
+  protected Report(String document) {
+    this.document = document;
+  }
+
+  public String getDocument() {
+    return document;
+  }
+
+  public boolean isStreaming() {
+    return sink != null;
+  }
+
   public Iterator<ReportEntry> getReports() {
     return allReports.iterator();
   }
 
   public boolean hasReports() {
-    return !allReports.isEmpty();
+    return reportCount > 0;
   }
 
   public void addReport(String fieldName, String report) {
@@ -48,11 +104,19 @@ public class Report {
   }
 
   public boolean hasWarnings() {
-    return !allWarnings.isEmpty();
+    return warningCount > 0;
   }
 
   public void addWarning(String fieldName, String warning) {
     warnings.add(new ReportEntry(fieldName, warning));
+    addedWarningCount++;
+  }
+
+  /**
+   * @return the number of warnings added so far, including those of the current field
+   */
+  public int getAddedWarningCount() {
+    return addedWarningCount;
   }
 
   public Iterator<ReportEntry> getErrors() {
@@ -60,40 +124,150 @@ public class Report {
   }
 
   public boolean hasErrors() {
-    return !allErrors.isEmpty();
+    return errorCount > 0;
   }
 
   public void addError(String fieldName, String error) {
     errors.add(new ReportEntry(fieldName, error));
+    addedErrorCount++;
   }
 
-  public void next() {
-    if (errors.isEmpty() && warnings.isEmpty()) {
-      allReports.addAll(reports);
+  /**
+   * @return the number of errors added so far, including those of the current field
+   */
+  public int getAddedErrorCount() {
+    return addedErrorCount;
+  }
+
+  /**
+   * Add the entries collected by another, buffered report to the current field of this report.
+   */
+  public void addAll(Report other) {
+    Iterator<ReportEntry> entries = other.getReports();
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      addReport(entry.getKey(), entry.getValue());
     }
 
-    if (!warnings.isEmpty()) {
-      allWarnings.addAll(warnings);
+    entries = other.getWarnings();
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      addWarning(entry.getKey(), entry.getValue());
     }
-    if (!errors.isEmpty()) {
-      allErrors.addAll(errors);
+
+    entries = other.getErrors();
+    while (entries.hasNext()) {
+      ReportEntry entry = entries.next();
+      addError(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public void next() {
+    if (errors.isEmpty() && warnings.isEmpty()) {
+      reportCount += reports.size();
+      collect(EntryType.REPORT, reports, allReports);
     }
 
+    warningCount += warnings.size();
+    errorCount += errors.size();
+    collect(EntryType.WARNING, warnings, allWarnings);
+    collect(EntryType.ERROR, errors, allErrors);
+
     errors.clear();
     warnings.clear();
     reports.clear();
   }
 
+  private void collect(EntryType type, List<ReportEntry> entries, List<ReportEntry> all) {
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    if (sink == null) {
+      all.addAll(entries);
+      return;
+    }
+
+    for (ReportEntry entry : entries) {
+      sink.entry(document, type, entry);
+    }
+  }
+
+  /**
+   * Signal that the document is complete. Streaming reports pass the final counts on to their sink.
+   */
+  public void finish() {
+    next();
+
+    if (sink != null) {
+      sink.endDocument(document, warningCount, errorCount);
+    }
+  }
+
   public String build(ReportType reportType, boolean prettyPrint) {
+    if (isStreaming()) {
+      throw new IllegalStateException("A streaming report has no buffered entries to build");
+    }
+
     switch (reportType) {
       case JSON:
         return buildJson(prettyPrint);
+      case SMILE:
+      case CBOR:
+        throw new IllegalArgumentException("The " + reportType
+            + " report type is binary, write it with a BinaryReportWriter");
       default:
         throw new IllegalArgumentException("Invalid report type option '" + reportType
             + "'. Valid values are " + Arrays.toString(ReportType.values()));
     }
   }
 
+  /**
+   * Build the JSON report at the given level: every entry with its message at the detailed and all
+   * levels, the names of the fields with an error at the compact level, where entries have no
+   * message, and nothing below.
+   */
+  public String build(ReportLevel level, boolean prettyPrint) {
+    switch (level) {
+      case NONE:
+      case EXIT_CODE:
+        return "";
+      case COMPACT:
+        return buildErrorFields(prettyPrint);
+      default:
+        return build(ReportType.JSON, prettyPrint);
+    }
+  }
+
+  private String buildErrorFields(boolean prettyPrint) {
+    if (isStreaming()) {
+      throw new IllegalStateException("A streaming report has no buffered entries to build");
+    }
+    if (!hasErrors()) {
+      return "";
+    }
+
+    ObjectNode rootNode = new JsonMapper().createObjectNode();
+    ArrayNode errorsNode = rootNode.putArray("errors");
+
+    // Errors are grouped by field, so every failing field is listed once
+    String previous = null;
+    Iterator<ReportEntry> entries = getErrors();
+    while (entries.hasNext()) {
+      String fieldName = entries.next().getKey();
+
+      if (!fieldName.equals(previous)) {
+        errorsNode.add(fieldName);
+      }
+      previous = fieldName;
+    }
+
+    if (prettyPrint) {
+      return rootNode.toPrettyString();
+    }
+    return rootNode.toString();
+  }
+
   private String buildJson(boolean prettyPrint) {
     JsonMapper mapper = new JsonMapper();
     ObjectNode rootNode = mapper.createObjectNode();
@@ -101,24 +275,27 @@ public class Report {
     if (hasReports()) {
       ArrayNode reportsNode = rootNode.putArray("reports");
 
-      for (ReportEntry report : allReports) {
-        reportsNode.add(report.getValue());
+      Iterator<ReportEntry> entries = getReports();
+      while (entries.hasNext()) {
+        reportsNode.add(entries.next().getValue());
       }
     }
 
     if (hasWarnings()) {
       ArrayNode warningsNode = rootNode.putArray("warnings");
 
-      for (ReportEntry warning : allWarnings) {
-        warningsNode.add(warning.getValue());
+      Iterator<ReportEntry> entries = getWarnings();
+      while (entries.hasNext()) {
+        warningsNode.add(entries.next().getValue());
       }
     }
 
     if (hasErrors()) {
       ArrayNode errorsNode = rootNode.putArray("errors");
 
-      for (ReportEntry error : allErrors) {
-        errorsNode.add(error.getValue());
+      Iterator<ReportEntry> entries = getErrors();
+      while (entries.hasNext()) {
+        errorsNode.add(entries.next().getValue());
       }
     }
 
@@ -0,0 +1,28 @@
+package com.tylersenter.pdf.reporting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import com.tylersenter.pdf.reporting.Report.EntryType;
+
+/**
+ * A ReportSink receives report entries as soon as a field has been validated, instead of having
+ * them buffered in a {@link Report} until the whole document is done. A single sink is usually
+ * shared by every document of a batch, so implementations must be thread safe.
+ */
+public interface ReportSink extends Closeable {
+  /**
+   * Write a single entry produced while validating the given document.
+   *
+   * @param document the name of the document being validated
+   * @param type whether the entry is a report, a warning or an error
+   * @param entry the field name and message
+   */
+  public void entry(String document, EntryType type, ReportEntry entry);
+
+  /**
+   * Called once after the last entry of a document has been written.
+   */
+  public void endDocument(String document, int warningCount, int errorCount);
+
+  public void flush() throws IOException;
+}
@@ -0,0 +1,319 @@
+package com.tylersenter.pdf.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.reload.PlanReloader;
+import com.tylersenter.pdf.reload.PlanReloader.Revision;
+import com.tylersenter.pdf.reporting.Report;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+
+/**
+ * Validates PDFs posted to a local HTTP endpoint against plans compiled ahead of the requests, so
+ * that every request runs on a warm JVM. The plans are taken from {@link PlanReloader}s, so a
+ * configuration can be changed without restarting the server: each request is validated from start
+ * to end on the plan that was current when it arrived.
+ *
+ * <code>POST /validate/{config}</code> with the PDF as the request body responds with the JSON
+ * report of the document at the configured report level: the names of the failing fields at the
+ * compact level, and <code>{}</code> if it has no entries. The
+ * <code>X-Validation-Result</code> header is <code>valid</code> or <code>invalid</code>, and
+ * <code>X-Plan-Version</code> is the version of the plan used. If only one plan is loaded, its
+ * name may be left out of the path.
+ * <code>GET /health</code> responds with 200 while the server is running, with the version, load
+ * time and rejected changes of every configuration.
+ *
+ * At most <code>concurrency</code> documents are validated at once and at most
+ * <code>queueCapacity</code> more are read or wait for a worker. Requests arriving when the queue
+ * is full are rejected with 503 before their body is read, which callers should retry after a
+ * short delay. Together with the document size limit this bounds the memory held by uploads.
+ */
+public class ValidationServer {
+  public static final long DEFAULT_MAX_DOCUMENT_BYTES = 64L * 1024 * 1024;
+
+  private static final int STOP_DELAY_SECONDS = 5;
+  // Connection threads beyond the admitted requests, to reject the others and answer /health
+  private static final int SPARE_CONNECTION_THREADS = 2;
+
+  private Map<String, PlanReloader> plans;
+  private int concurrency;
+  private int queueCapacity;
+  private FormLoader loader;
+  private long maxDocumentBytes;
+  // One permit per request being read, waiting or validated
+  private Semaphore admissions;
+
+  private HttpServer server;
+  private ExecutorService connections;
+  private ThreadPoolExecutor workers;
+
+  /**
+   * @param plans the plans to serve, keyed by the name used in the request path
+   */
+  public ValidationServer(Map<String, PlanReloader> plans, int concurrency, int queueCapacity) {
+    if (plans.isEmpty()) {
+      throw new IllegalArgumentException("At least one configuration must be loaded");
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("The concurrency must be at least 1");
+    }
+    if (queueCapacity < 0) {
+      throw new IllegalArgumentException("The queue capacity must not be negative");
+    }
+
+    this.plans = Collections.unmodifiableMap(new LinkedHashMap<>(plans));
+    this.concurrency = concurrency;
+    this.queueCapacity = queueCapacity;
+    this.loader = new FormLoader();
+    this.maxDocumentBytes = DEFAULT_MAX_DOCUMENT_BYTES;
+    this.admissions = new Semaphore(concurrency + queueCapacity);
+  }
+
+  public void setFormLoader(FormLoader loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Reject larger request bodies with 413.
+   */
+  public void setMaxDocumentBytes(long maxDocumentBytes) {
+    this.maxDocumentBytes = maxDocumentBytes;
+  }
+
+  public Map<String, PlanReloader> getPlans() {
+    return plans;
+  }
+
+  /**
+   * Start listening on the loopback interface. Use port 0 to pick any free port, see
+   * {@link #getAddress()}.
+   */
+  public void start(int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("The server is already running");
+    }
+
+    BlockingQueue<Runnable> queue;
+    if (queueCapacity == 0) {
+      queue = new SynchronousQueue<>();
+    } else {
+      queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+    workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, queue);
+    // Connection threads only read uploads and wait for workers, the admissions bound how many
+    connections =
+        Executors.newFixedThreadPool(concurrency + queueCapacity + SPARE_CONNECTION_THREADS);
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.setExecutor(connections);
+    server.createContext("/validate", new ValidateHandler());
+    server.createContext("/health", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        ObjectNode health = JsonNodeFactory.instance.objectNode();
+        health.put("status", "ok");
+
+        ObjectNode configs = health.putObject("configs");
+        for (Map.Entry<String, PlanReloader> entry : plans.entrySet()) {
+          configs.set(entry.getKey(), entry.getValue().toJson());
+        }
+        send(exchange, 200, health.toString());
+      }
+    });
+    server.start();
+  }
+
+  public InetSocketAddress getAddress() {
+    if (server == null) {
+      throw new IllegalStateException("The server is not running");
+    }
+    return server.getAddress();
+  }
+
+  /**
+   * Stop accepting requests, give the ones in progress a few seconds to finish, and release the
+   * worker threads.
+   */
+  public void stop() {
+    if (server == null) {
+      return;
+    }
+
+    server.stop(STOP_DELAY_SECONDS);
+    workers.shutdownNow();
+    connections.shutdownNow();
+    server = null;
+  }
+
+  private class ValidateHandler implements HttpHandler {
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        if (!exchange.getRequestMethod().equals("POST")) {
+          exchange.getResponseHeaders().set("Allow", "POST");
+          sendError(exchange, 405, "Documents must be sent with POST");
+          return;
+        }
+
+        PlanReloader reloader = resolvePlan(exchange.getRequestURI().getPath());
+        if (reloader == null) {
+          sendError(exchange, 404, "Unknown configuration, available: " + plans.keySet());
+          return;
+        }
+
+        // Reject early, before reading a body that would be thrown away
+        if (!admissions.tryAcquire()) {
+          sendBusy(exchange);
+          return;
+        }
+        try {
+          validate(exchange, reloader);
+        } finally {
+          admissions.release();
+        }
+      } finally {
+        exchange.close();
+      }
+    }
+
+    private void validate(HttpExchange exchange, PlanReloader reloader) throws IOException {
+      byte[] document = readBody(exchange.getRequestBody());
+      if (document == null) {
+        sendError(exchange, 413, "Documents are limited to " + maxDocumentBytes + " bytes");
+        return;
+      }
+
+      Revision revision = reloader.getRevision();
+      Future<Report> future;
+      try {
+        future = workers.submit(new ValidationTask(revision.getPlan(), document));
+      } catch (RejectedExecutionException e) {
+        sendBusy(exchange);
+        return;
+      }
+
+      Report report;
+      try {
+        report = future.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          sendError(exchange, 422, "Could not read the document: " + e.getCause().getMessage());
+        } else {
+          sendError(exchange, 500, "Validation failed: " + e.getCause());
+        }
+        return;
+      } catch (InterruptedException e) {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+        sendError(exchange, 503, "The server is shutting down");
+        return;
+      }
+
+      String json = report.build(revision.getPlan().getPreferences().getReportLevel(), false);
+      exchange.getResponseHeaders().set("X-Validation-Result",
+          report.hasErrors() ? "invalid" : "valid");
+      exchange.getResponseHeaders().set("X-Plan-Version", String.valueOf(revision.getVersion()));
+      send(exchange, 200, json.isEmpty() ? "{}" : json);
+    }
+
+    private PlanReloader resolvePlan(String path) {
+      String name = path.substring("/validate".length());
+
+      if (name.startsWith("/")) {
+        name = name.substring(1);
+      }
+
+      if (name.isEmpty()) {
+        return plans.size() == 1 ? plans.values().iterator().next() : null;
+      }
+      return plans.get(name);
+    }
+
+    /**
+     * @return the body, or null if it is larger than the configured maximum
+     */
+    private byte[] readBody(InputStream body) throws IOException {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+      byte[] chunk = new byte[64 * 1024];
+      long total = 0;
+      int read;
+
+      while ((read = body.read(chunk)) != -1) {
+        total += read;
+
+        if (total > maxDocumentBytes) {
+          return null;
+        }
+        buffer.write(chunk, 0, read);
+      }
+
+      return buffer.toByteArray();
+    }
+
+    private void sendBusy(HttpExchange exchange) throws IOException {
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      sendError(exchange, 503, "Too many documents are waiting, try again later");
+    }
+  }
+
+  private class ValidationTask implements Callable<Report> {
+    private ValidationPlan plan;
+    private byte[] document;
+
+    public ValidationTask(ValidationPlan plan, byte[] document) {
+      this.plan = plan;
+      this.document = document;
+    }
+
+    public Report call() throws IOException {
+      FormBinding binding = new FormBinding(plan);
+      loader.load(new RandomAccessBuffer(document), binding);
+
+      return new Validator(plan, binding).validateAll();
+    }
+  }
+
+  private static void sendError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    ObjectNode error = JsonNodeFactory.instance.objectNode();
+    error.put("error", message);
+    send(exchange, status, error.toString());
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
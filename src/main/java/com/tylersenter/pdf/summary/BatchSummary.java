@@ -0,0 +1,244 @@
+package com.tylersenter.pdf.summary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.FormBinding;
+import com.tylersenter.pdf.FormField;
+import com.tylersenter.pdf.ValidationListener;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.reporting.Report;
+import com.tylersenter.pdf.validations.FieldValidation;
+
+/**
+ * Aggregates the outcome of a whole batch: how many documents were valid, how often every field
+ * passed, warned or failed, how often every validation type failed, the most frequent values of
+ * every failing field and how many documents were validated per second.
+ *
+ * Counters are {@link LongAdder}s, so workers feed the summary without contending on a lock. Only
+ * the most frequent values are tracked under a lock, one per field, see {@link HeavyHitters}.
+ */
+public class BatchSummary implements ValidationListener {
+  public static final int DEFAULT_TOP_VALUES = 5;
+
+  // Values tracked per field for every value reported
+  private static final int TRACKED_VALUES_PER_TOP_VALUE = 10;
+
+  private final int topValues;
+  private final Map<String, FieldCounters> fields;
+  private final ConcurrentMap<Class<?>, LongAdder> failuresByType;
+  private final LongAdder documents;
+  private final LongAdder invalidDocuments;
+  private final ConcurrentMap<Long, LongAdder> documentsPerSecond;
+  private final long startNanos;
+
+  public BatchSummary(ValidationPlan plan) {
+    this(plan, DEFAULT_TOP_VALUES);
+  }
+
+  public BatchSummary(ValidationPlan plan, int topValues) {
+    if (topValues < 0) {
+      throw new IllegalArgumentException("The number of top values cannot be negative");
+    }
+
+    int trackedValues = Math.max(1, topValues * TRACKED_VALUES_PER_TOP_VALUE);
+    Map<String, FieldCounters> fields = new LinkedHashMap<>();
+    for (String fieldName : plan.getFieldTypes().keySet()) {
+      fields.put(fieldName, new FieldCounters(trackedValues));
+    }
+
+    this.topValues = topValues;
+    this.fields = Collections.unmodifiableMap(fields);
+    this.failuresByType = new ConcurrentHashMap<>();
+    this.documents = new LongAdder();
+    this.invalidDocuments = new LongAdder();
+    this.documentsPerSecond = new ConcurrentHashMap<>();
+    this.startNanos = System.nanoTime();
+  }
+
+  public void validationFailed(FormField field, FieldValidation validation) {
+    counter(failuresByType, validation.getClass()).increment();
+  }
+
+  public void fieldValidated(FormField field, boolean hasWarnings, boolean hasErrors) {
+    FieldCounters counters = fields.get(field.getName());
+    if (counters == null) {
+      return;
+    }
+
+    if (hasErrors) {
+      counters.failed.increment();
+      if (topValues > 0) {
+        String value = field.valueAsString();
+        counters.failingValues.offer(value == null ? "" : value);
+      }
+    } else if (hasWarnings) {
+      counters.warned.increment();
+    } else {
+      counters.passed.increment();
+    }
+  }
+
+  public void documentValidated(FormBinding binding, Report report) {
+    documents.increment();
+    if (report.hasErrors()) {
+      invalidDocuments.increment();
+    }
+
+    long second = (System.nanoTime() - startNanos) / 1000000000L;
+    counter(documentsPerSecond, second).increment();
+  }
+
+  private static <K> LongAdder counter(ConcurrentMap<K, LongAdder> counters, K key) {
+    LongAdder counter = counters.get(key);
+
+    if (counter == null) {
+      counter = new LongAdder();
+
+      LongAdder existing = counters.putIfAbsent(key, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+
+    return counter;
+  }
+
+  public ObjectNode toJson() {
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+
+    long documentCount = documents.sum();
+    long invalidCount = invalidDocuments.sum();
+    ObjectNode documentsNode = root.putObject("documents");
+    documentsNode.put("validated", documentCount);
+    documentsNode.put("valid", documentCount - invalidCount);
+    documentsNode.put("invalid", invalidCount);
+
+    ObjectNode fieldsNode = root.putObject("fields");
+    for (Entry<String, FieldCounters> entry : fields.entrySet()) {
+      fieldsNode.set(entry.getKey(), entry.getValue().toJson(topValues));
+    }
+
+    Map<String, Long> failures = new TreeMap<>();
+    for (Entry<Class<?>, LongAdder> entry : failuresByType.entrySet()) {
+      failures.put(entry.getKey().getName(), entry.getValue().sum());
+    }
+    ObjectNode failuresNode = root.putObject("validationFailures");
+    for (Entry<String, Long> entry : failures.entrySet()) {
+      failuresNode.put(entry.getKey(), entry.getValue());
+    }
+
+    root.set("documentsPerSecond", throughputJson());
+
+    return root;
+  }
+
+  /**
+   * The distribution of the number of documents validated in each second of the batch, from the
+   * first to the last second a document was finished in. Seconds in between without any document
+   * count as zero.
+   */
+  private ObjectNode throughputJson() {
+    ObjectNode node = JsonNodeFactory.instance.objectNode();
+
+    TreeMap<Long, Long> counts = new TreeMap<>();
+    for (Entry<Long, LongAdder> entry : documentsPerSecond.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    List<Long> perSecond = new ArrayList<>();
+    if (!counts.isEmpty()) {
+      long first = counts.firstKey();
+      long last = counts.lastKey();
+
+      for (long second = first; second <= last; second++) {
+        Long count = counts.get(second);
+        perSecond.add(count == null ? 0 : count);
+      }
+    }
+
+    node.put("seconds", perSecond.size());
+    if (perSecond.isEmpty()) {
+      return node;
+    }
+
+    long total = 0;
+    for (long count : perSecond) {
+      total += count;
+    }
+    List<Long> sorted = new ArrayList<>(perSecond);
+    Collections.sort(sorted);
+
+    node.put("mean", (double) total / perSecond.size());
+    node.put("min", sorted.get(0));
+    node.put("p50", percentile(sorted, 0.5));
+    node.put("p90", percentile(sorted, 0.9));
+    node.put("max", sorted.get(sorted.size() - 1));
+
+    // Power of two buckets, labelled with their range
+    Map<Integer, Long> buckets = new TreeMap<>();
+    for (long count : perSecond) {
+      int bucket = 64 - Long.numberOfLeadingZeros(count);
+      Long bucketCount = buckets.get(bucket);
+      buckets.put(bucket, bucketCount == null ? 1 : bucketCount + 1);
+    }
+
+    ObjectNode bucketsNode = node.putObject("histogram");
+    for (Entry<Integer, Long> entry : buckets.entrySet()) {
+      int bucket = entry.getKey();
+      long low = bucket == 0 ? 0 : 1L << (bucket - 1);
+      long high = bucket == 0 ? 0 : (1L << bucket) - 1;
+      bucketsNode.put(low == high ? String.valueOf(low) : low + "-" + high, entry.getValue());
+    }
+
+    return node;
+  }
+
+  private static long percentile(List<Long> sorted, double fraction) {
+    int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+    return sorted.get(Math.max(0, index));
+  }
+
+  private static class FieldCounters {
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder warned = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final HeavyHitters failingValues;
+
+    public FieldCounters(int trackedValues) {
+      this.failingValues = new HeavyHitters(trackedValues);
+    }
+
+    public ObjectNode toJson(int topValues) {
+      ObjectNode node = JsonNodeFactory.instance.objectNode();
+      node.put("passed", passed.sum());
+      node.put("warned", warned.sum());
+      node.put("failed", failed.sum());
+
+      if (topValues > 0) {
+        ArrayNode valuesNode = node.putArray("topFailingValues");
+
+        for (HeavyHitters.Estimate estimate : failingValues.top(topValues)) {
+          ObjectNode valueNode = valuesNode.addObject();
+          valueNode.put("value", estimate.getValue());
+          valueNode.put("count", estimate.getCount());
+          if (estimate.getError() > 0) {
+            valueNode.put("maxOvercount", estimate.getError());
+          }
+        }
+      }
+
+      return node;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.tylersenter.pdf.summary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most frequent values of a stream, estimated in bounded space with the Space-Saving algorithm.
+ * At most <code>capacity</code> values are tracked. When a new value arrives while the table is
+ * full, it replaces the value with the lowest count and inherits that count as its error, so a
+ * count is never underestimated and overestimated by at most its error. Any value occurring more
+ * than <code>n / capacity</code> times in a stream of <code>n</code> values is guaranteed to be
+ * tracked.
+ */
+public class HeavyHitters {
+
+  /**
+   * An estimated count. The true count lies between <code>count - error</code> and
+   * <code>count</code>.
+   */
+  public static class Estimate {
+    private final String value;
+    private final long count;
+    private final long error;
+
+    Estimate(String value, long count, long error) {
+      this.value = value;
+      this.count = count;
+      this.error = error;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getError() {
+      return error;
+    }
+  }
+
+  private static final Comparator<Estimate> BY_COUNT = new Comparator<Estimate>() {
+    public int compare(Estimate left, Estimate right) {
+      return Long.compare(right.count, left.count);
+    }
+  };
+
+  private final int capacity;
+  private final Map<String, long[]> counters;
+
+  public HeavyHitters(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be at least 1");
+    }
+
+    this.capacity = capacity;
+    this.counters = new HashMap<>();
+  }
+
+  public synchronized void offer(String value) {
+    // count, error
+    long[] counter = counters.get(value);
+
+    if (counter != null) {
+      counter[0]++;
+      return;
+    }
+
+    if (counters.size() < capacity) {
+      counters.put(value, new long[] {1, 0});
+      return;
+    }
+
+    String minimumValue = null;
+    long[] minimum = null;
+    for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+      if (minimum == null || entry.getValue()[0] < minimum[0]) {
+        minimumValue = entry.getKey();
+        minimum = entry.getValue();
+      }
+    }
+
+    counters.remove(minimumValue);
+    minimum[1] = minimum[0];
+    minimum[0]++;
+    counters.put(value, minimum);
+  }
+
+  /**
+   * @return up to <code>n</code> values, the most frequent first
+   */
+  public synchronized List<Estimate> top(int n) {
+    List<Estimate> estimates = new ArrayList<>(counters.size());
+
+    for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+      estimates.add(new Estimate(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+    }
+    Collections.sort(estimates, BY_COUNT);
+
+    return estimates.subList(0, Math.min(n, estimates.size()));
+  }
+}
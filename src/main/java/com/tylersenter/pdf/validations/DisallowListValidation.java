@@ -6,39 +6,16 @@ import com.tylersenter.pdf.FormField;
 import com.tylersenter.pdf.configurations.Preferences;
 import com.tylersenter.pdf.reporting.Report;
 
-public class DisallowListValidation extends FieldValidation {
-
-  private static final String CASE_SENSITIVE_FIELD = "caseSensitive";
-  private static final String ALLOW_TRIM_FIELD = "allowTrim";
-
-  private List<String> disallowedValues;
+public class DisallowListValidation extends ListValidation {
 
   public DisallowListValidation(List<String> disallowedValues, String validMessage,
       String invalidMessage) {
-    super(validMessage, invalidMessage);
-    this.disallowedValues = disallowedValues;
+    super(disallowedValues, validMessage, invalidMessage);
   }
 
   public boolean validate(FormField field, Map<String, FormField> fields, Report report,
       Preferences preferences) {
-    String value = field.valueAsString();
-    boolean caseSensitive = true;
-    boolean isValid = true;
-
-    if (hasProperty(CASE_SENSITIVE_FIELD)) {
-      caseSensitive = (boolean) getProperty(CASE_SENSITIVE_FIELD);
-    }
-
-    if (hasProperty(ALLOW_TRIM_FIELD) && (boolean) getProperty(ALLOW_TRIM_FIELD)) {
-      value = value.trim();
-    }
-
-    for (String disallowedValue : disallowedValues) {
-      if ((caseSensitive && disallowedValue.equals(value))
-          || (!caseSensitive && disallowedValue.equalsIgnoreCase(value))) {
-        isValid = false;
-      }
-    }
+    boolean isValid = !contains(field);
 
     if (isValid) {
       generateReport(field, preferences, report);
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import com.tylersenter.pdf.FormField;
 import com.tylersenter.pdf.configurations.Preferences;
+import com.tylersenter.pdf.misc.MessageTemplate;
 import com.tylersenter.pdf.misc.VariableUtils;
 import com.tylersenter.pdf.reporting.Report;
 
@@ -11,6 +12,8 @@ public abstract class FieldValidation {
 
   private String validMessage;
   private String invalidMessage;
+  private MessageTemplate validTemplate;
+  private MessageTemplate invalidTemplate;
   private Map<String, Object> properties;
 
   public FieldValidation() {
@@ -18,8 +21,8 @@ public abstract class FieldValidation {
   }
 
   public FieldValidation(String validMessage, String invalidMessage) {
-    this.validMessage = validMessage;
-    this.invalidMessage = invalidMessage;
+    setValidMessage(validMessage);
+    setInvalidMessage(invalidMessage);
     this.properties = new HashMap<>();
   }
 
@@ -29,6 +32,7 @@ public abstract class FieldValidation {
 
   public void setValidMessage(String validMessage) {
     this.validMessage = validMessage;
+    this.validTemplate = validMessage == null ? null : VariableUtils.compile(validMessage);
   }
 
   public String getInvalidMessage() {
@@ -37,6 +41,7 @@ public abstract class FieldValidation {
 
   public void setInvalidMessage(String invalidMessage) {
     this.invalidMessage = invalidMessage;
+    this.invalidTemplate = invalidMessage == null ? null : VariableUtils.compile(invalidMessage);
   }
 
   public Map<String, Object> getProperties() {
@@ -58,28 +63,60 @@ public abstract class FieldValidation {
   public abstract boolean validate(FormField field, Map<String, FormField> fields, Report report,
       Preferences preferences);
 
+  /**
+   * Record that the field is valid. Nothing is recorded, and no message is built, unless the
+   * configured report level outputs valid fields.
+   */
   protected void generateReport(FormField field, Preferences preferences, Report report) {
-    if (validMessage == null) {
-      validMessage = preferences.getValidMessage();
+    if (!preferences.reportsValidFields()) {
+      return;
+    }
+
+    MessageTemplate template = validTemplate;
+
+    if (template == null) {
+      template = preferences.getValidTemplate();
     }
 
-    report.addReport(field.getName(), replaceVariables(field, validMessage));
+    report.addReport(field.getName(), template.render(field));
   }
 
+  /**
+   * Record a warning for the field. The message is only built if the configured report level
+   * outputs messages, otherwise the warning is recorded without one.
+   */
   protected void generateWarning(FormField field, Preferences preferences, Report report) {
-    if (invalidMessage == null) {
-      invalidMessage = preferences.getInvalidMessage();
+    if (!preferences.reportsMessages()) {
+      report.addWarning(field.getName(), null);
+      return;
     }
 
-    report.addWarning(field.getName(), replaceVariables(field, invalidMessage));
+    MessageTemplate template = invalidTemplate;
+
+    if (template == null) {
+      template = preferences.getInvalidTemplate();
+    }
+
+    report.addWarning(field.getName(), template.render(field));
   }
 
+  /**
+   * Record an error for the field. The message is only built if the configured report level
+   * outputs messages, otherwise the error is recorded without one.
+   */
   protected void generateError(FormField field, Preferences preferences, Report report) {
-    if (invalidMessage == null) {
-      invalidMessage = preferences.getInvalidMessage();
+    if (!preferences.reportsMessages()) {
+      report.addError(field.getName(), null);
+      return;
+    }
+
+    MessageTemplate template = invalidTemplate;
+
+    if (template == null) {
+      template = preferences.getInvalidTemplate();
     }
 
-    report.addError(field.getName(), replaceVariables(field, invalidMessage));
+    report.addError(field.getName(), template.render(field));
   }
 
   protected String replaceVariables(FormField field, String message) {
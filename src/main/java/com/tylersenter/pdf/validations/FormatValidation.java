@@ -1,13 +1,20 @@
 package com.tylersenter.pdf.validations;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Map;
 import com.tylersenter.pdf.FormField;
 import com.tylersenter.pdf.configurations.Preferences;
 import com.tylersenter.pdf.reporting.Report;
-import org.apache.commons.validator.routines.DoubleValidator;
 import org.apache.commons.validator.routines.EmailValidator;
-import org.apache.commons.validator.routines.LongValidator;
 
+/**
+ * Requires the value of a field to be an email address, an integer or a decimal number. Numbers can
+ * be restricted with the <code>minimum</code>, <code>maximum</code> and <code>equals</code>
+ * options, which are compiled into a {@link Checker} whenever the properties are set, so invalid
+ * options are rejected when the configuration is loaded. An <code>equals</code> option narrows the
+ * range down to a single value.
+ */
 public class FormatValidation extends FieldValidation {
 
   private static final String MINIMUM_PROP = "minimum";
@@ -18,31 +25,104 @@ public class FormatValidation extends FieldValidation {
     EMAIL, INTEGER, DECIMAL;
   }
 
+  /**
+   * The compiled form of a format and its options.
+   */
+  private static interface Checker {
+    boolean check(FormField field);
+  }
+
+  private static class EmailChecker implements Checker {
+    private final EmailValidator validator = EmailValidator.getInstance();
+
+    public boolean check(FormField field) {
+      return validator.isValid(field.valueAsString());
+    }
+  }
+
+  private static class IntegerChecker implements Checker {
+    private final long minimum;
+    private final long maximum;
+
+    public IntegerChecker(long minimum, long maximum) {
+      this.minimum = minimum;
+      this.maximum = maximum;
+    }
+
+    public boolean check(FormField field) {
+      if (!field.hasLongValue()) {
+        return false;
+      }
+
+      long value = field.longValue();
+      return minimum <= value && value <= maximum;
+    }
+  }
+
+  /**
+   * Compares decimals exactly. Rounding to a double never changes the order of two numbers, so the
+   * double views decide every value except those rounded onto a bound, which are compared as
+   * {@link BigDecimal}s.
+   */
+  private static class DecimalChecker implements Checker {
+    // null if unbounded
+    private final BigDecimal minimum;
+    private final BigDecimal maximum;
+    private final double roundedMinimum;
+    private final double roundedMaximum;
+
+    public DecimalChecker(BigDecimal minimum, BigDecimal maximum) {
+      this.minimum = minimum;
+      this.maximum = maximum;
+      this.roundedMinimum = minimum == null ? Double.NEGATIVE_INFINITY : minimum.doubleValue();
+      this.roundedMaximum = maximum == null ? Double.POSITIVE_INFINITY : maximum.doubleValue();
+    }
+
+    public boolean check(FormField field) {
+      if (!field.hasDoubleValue()) {
+        return false;
+      }
+
+      double value = field.doubleValue();
+      if (value < roundedMinimum || value > roundedMaximum) {
+        return false;
+      }
+      if (value > roundedMinimum && value < roundedMaximum) {
+        return true;
+      }
+
+      BigDecimal exact = field.decimalValue();
+      return (minimum == null || minimum.compareTo(exact) <= 0)
+          && (maximum == null || exact.compareTo(maximum) <= 0);
+    }
+  }
+
   private FormatType type;
+  private Checker checker;
 
   public FormatValidation(FormatType type, String validMessage, String invalidMessage) {
     super(validMessage, invalidMessage);
+
+    if (type == null) {
+      throw new IllegalArgumentException("A format type is required");
+    }
     this.type = type;
+    this.checker = compile();
   }
 
-  public boolean validate(FormField field, Map<String, FormField> fields, Report report,
-      Preferences preferences) {
-    switch (type) {
-      case EMAIL:
-        return validateEmail(field, fields, report, preferences);
-      case INTEGER:
-        return validateInteger(field, fields, report, preferences);
-      case DECIMAL:
-        return validateDecimal(field, fields, report, preferences);
-    }
-    throw new IllegalArgumentException("Invalid format type: " + type);
+  @Override
+  public void setProperties(Map<String, Object> properties) {
+    super.setProperties(properties);
+    checker = compile();
   }
 
-  private boolean validateEmail(FormField field, Map<String, FormField> fields, Report report,
-      Preferences preferences) {
-    EmailValidator validator = EmailValidator.getInstance();
+  public FormatType getType() {
+    return type;
+  }
 
-    boolean isValid = validator.isValid(field.asTextField().getValue());
+  public boolean validate(FormField field, Map<String, FormField> fields, Report report,
+      Preferences preferences) {
+    boolean isValid = checker.check(field);
 
     if (isValid) {
       generateReport(field, preferences, report);
@@ -53,124 +133,105 @@ public class FormatValidation extends FieldValidation {
     return isValid;
   }
 
-  private boolean validateInteger(FormField field, Map<String, FormField> fields, Report report,
-      Preferences preferences) {
-    LongValidator validator = LongValidator.getInstance();
-
-    boolean isValid = validator.isValid(field.asTextField().getValue());
+  private Checker compile() {
+    switch (type) {
+      case EMAIL:
+        return new EmailChecker();
+      case INTEGER:
+        return compileInteger();
+      case DECIMAL:
+        return compileDecimal();
+    }
+    throw new IllegalArgumentException("Invalid format type: " + type);
+  }
 
-    Long value;
-    Long equals = null;
+  /**
+   * Decimal bounds are rounded inwards, and an <code>equals</code> option that is not a whole
+   * number leaves an empty range.
+   */
+  private Checker compileInteger() {
     long minimum = Long.MIN_VALUE;
     long maximum = Long.MAX_VALUE;
 
-    if (!isValid) {
-      generateError(field, preferences, report);
-      return false;
-    }
-
-    value = Long.parseLong(field.valueAsString());
-
     if (hasProperty(MINIMUM_PROP)) {
-      Object minObject = getProperty(MINIMUM_PROP);
-
-      if (!(minObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + MINIMUM_PROP + " must be a number");
-      }
-      minimum = (long) minObject;
+      Number value = getNumber(MINIMUM_PROP);
+      minimum = toLong(Math.ceil(value.doubleValue()), value);
     }
 
     if (hasProperty(MAXIMUM_PROP)) {
-      Object maxObject = getProperty(MAXIMUM_PROP);
-
-      if (!(maxObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + MAXIMUM_PROP + " must be a number");
-      }
-      maximum = (long) maxObject;
+      Number value = getNumber(MAXIMUM_PROP);
+      maximum = toLong(Math.floor(value.doubleValue()), value);
     }
 
     if (hasProperty(EQUALS_PROP)) {
-      Object eqObject = getProperty(EQUALS_PROP);
+      Number equals = getNumber(EQUALS_PROP);
+      double value = equals.doubleValue();
 
-      if (!(eqObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + EQUALS_PROP + " must be a number");
+      if (value != Math.rint(value)) {
+        return new IntegerChecker(Long.MAX_VALUE, Long.MIN_VALUE);
       }
-      equals = (long) eqObject;
+      minimum = Math.max(minimum, toLong(value, equals));
+      maximum = Math.min(maximum, toLong(value, equals));
     }
 
-    isValid &= minimum <= value;
-    isValid &= value <= maximum;
-    if (equals != null) {
-      isValid &= value == equals;
-    }
-
-    if (isValid) {
-      generateReport(field, preferences, report);
-    } else {
-      generateError(field, preferences, report);
-    }
-
-    return isValid;
+    return new IntegerChecker(minimum, maximum);
   }
 
-  private boolean validateDecimal(FormField field, Map<String, FormField> fields, Report report,
-      Preferences preferences) {
-    DoubleValidator validator = DoubleValidator.getInstance();
-
-    boolean isValid = validator.isValid(field.asTextField().getValue());
-
-    Double value;
-    Double equals = null;
-    double minimum = Double.MIN_VALUE;
-    double maximum = Double.MAX_VALUE;
-
-    if (!isValid) {
-      generateError(field, preferences, report);
-      return false;
-    }
-
-    value = Double.parseDouble(field.valueAsString());
+  private Checker compileDecimal() {
+    BigDecimal minimum = null;
+    BigDecimal maximum = null;
 
     if (hasProperty(MINIMUM_PROP)) {
-      Object minObject = getProperty(MINIMUM_PROP);
-
-      if (!(minObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + MINIMUM_PROP + " must be a number");
-      }
-      minimum = (double) minObject;
+      minimum = toDecimal(getNumber(MINIMUM_PROP));
     }
 
     if (hasProperty(MAXIMUM_PROP)) {
-      Object maxObject = getProperty(MAXIMUM_PROP);
-
-      if (!(maxObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + MAXIMUM_PROP + " must be a number");
-      }
-      maximum = (double) maxObject;
+      maximum = toDecimal(getNumber(MAXIMUM_PROP));
     }
 
     if (hasProperty(EQUALS_PROP)) {
-      Object eqObject = getProperty(EQUALS_PROP);
-
-      if (!(eqObject instanceof Long)) {
-        throw new IllegalArgumentException("The value of " + EQUALS_PROP + " must be a number");
-      }
-      equals = (double) eqObject;
+      BigDecimal equals = toDecimal(getNumber(EQUALS_PROP));
+      minimum = minimum == null ? equals : minimum.max(equals);
+      maximum = maximum == null ? equals : maximum.min(equals);
     }
 
-    isValid &= minimum <= value;
-    isValid &= value <= maximum;
-    if (equals != null) {
-      isValid &= value == equals;
-    }
+    return new DecimalChecker(minimum, maximum);
+  }
 
-    if (isValid) {
-      generateReport(field, preferences, report);
-    } else {
-      generateError(field, preferences, report);
+  private Number getNumber(String key) {
+    Object value = getProperty(key);
+
+    if (!(value instanceof Number)) {
+      throw new IllegalArgumentException("The value of " + key + " must be a number");
     }
+    return (Number) value;
+  }
 
-    return isValid;
+  /**
+   * @return the number as written in the configuration, rather than its binary approximation
+   */
+  private static BigDecimal toDecimal(Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    }
+    if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    }
+    if (number instanceof Double || number instanceof Float) {
+      // The shortest decimal that rounds to the double, which is what was written
+      return new BigDecimal(number.toString());
+    }
+    return BigDecimal.valueOf(number.longValue());
   }
 
+  /**
+   * @return the number as a long, exactly if it already is one
+   */
+  private static long toLong(double rounded, Number number) {
+    if (number instanceof Long || number instanceof Integer) {
+      return number.longValue();
+    }
+    // Saturates outside the range of a long
+    return (long) rounded;
+  }
 }
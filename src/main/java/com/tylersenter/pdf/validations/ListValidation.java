@@ -0,0 +1,129 @@
+package com.tylersenter.pdf.validations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.tylersenter.pdf.FormField;
+import com.tylersenter.pdf.misc.MappedDictionary;
+
+/**
+ * Base class of the validations matching a field against a list of values. The list is indexed
+ * into a hash set when the validation is built, with the values already case-folded if the
+ * <code>caseSensitive</code> option is turned off, so a lookup takes constant time no matter how
+ * long the list is. The <code>caseSensitive</code> and <code>allowTrim</code> options are resolved
+ * once, whenever the properties are set.
+ *
+ * Very large lists can be kept in a sorted dictionary file instead, given by the
+ * <code>dictionary</code> option, which is searched off-heap through a {@link MappedDictionary}.
+ */
+public abstract class ListValidation extends FieldValidation {
+
+  private static final String CASE_SENSITIVE_FIELD = "caseSensitive";
+  private static final String ALLOW_TRIM_FIELD = "allowTrim";
+  private static final String DICTIONARY_FIELD = "dictionary";
+
+  private List<String> values;
+  private boolean caseSensitive;
+  private boolean allowTrim;
+  private Set<String> index;
+  private MappedDictionary dictionary;
+
+  public ListValidation(List<String> values, String validMessage, String invalidMessage) {
+    super(validMessage, invalidMessage);
+    this.values = values;
+    this.caseSensitive = true;
+    this.index = buildIndex(values, caseSensitive);
+  }
+
+  @Override
+  public void setProperties(Map<String, Object> properties) {
+    super.setProperties(properties);
+
+    boolean wasCaseSensitive = caseSensitive;
+    caseSensitive = getBooleanProperty(CASE_SENSITIVE_FIELD, true);
+    allowTrim = getBooleanProperty(ALLOW_TRIM_FIELD, false);
+
+    if (caseSensitive != wasCaseSensitive) {
+      index = buildIndex(values, caseSensitive);
+    }
+
+    dictionary = null;
+    if (hasProperty(DICTIONARY_FIELD)) {
+      dictionary = openDictionary(getProperty(DICTIONARY_FIELD));
+    }
+  }
+
+  public List<String> getValues() {
+    return values;
+  }
+
+  public boolean isCaseSensitive() {
+    return caseSensitive;
+  }
+
+  public boolean isAllowTrim() {
+    return allowTrim;
+  }
+
+  public MappedDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * @return whether the value of the field, trimmed and case-folded according to the options, is in
+   *         the list
+   */
+  protected boolean contains(FormField field) {
+    String value;
+
+    if (allowTrim) {
+      value = caseSensitive ? field.trimmedValue() : field.trimmedFoldedValue();
+    } else {
+      value = caseSensitive ? field.valueAsString() : field.foldedValue();
+    }
+
+    if (value == null) {
+      return false;
+    }
+
+    return index.contains(value) || (dictionary != null && dictionary.contains(value));
+  }
+
+  private static Set<String> buildIndex(List<String> values, boolean caseSensitive) {
+    Set<String> index = new HashSet<>(Math.max(16, (int) (values.size() / 0.75f) + 1));
+
+    for (String value : values) {
+      index.add(caseSensitive ? value : FormField.foldCase(value));
+    }
+
+    return index;
+  }
+
+  private static MappedDictionary openDictionary(Object path) {
+    if (!(path instanceof String)) {
+      throw new IllegalArgumentException(
+          "The value of " + DICTIONARY_FIELD + " must be a file path");
+    }
+
+    try {
+      return MappedDictionary.open(new File((String) path));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not open dictionary file '" + path + "'", e);
+    }
+  }
+
+  private boolean getBooleanProperty(String key, boolean defaultValue) {
+    if (!hasProperty(key)) {
+      return defaultValue;
+    }
+
+    Object value = getProperty(key);
+    if (!(value instanceof Boolean)) {
+      throw new IllegalArgumentException("The value of " + key + " must be true or false");
+    }
+    return (boolean) value;
+  }
+}
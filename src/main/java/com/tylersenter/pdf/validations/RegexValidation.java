@@ -15,6 +15,10 @@ public class RegexValidation extends FieldValidation {
     this.pattern = pattern;
   }
 
+  public Pattern getPattern() {
+    return pattern;
+  }
+
   public boolean validate(FormField field, Map<String, FormField> fields, Report report,
       Preferences preferences) {
     String valueAsString = field.valueAsString();
@@ -1,6 +1,11 @@
 package com.tylersenter.pdf.validations;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import com.tylersenter.pdf.DependencyGraph.Condition;
+import com.tylersenter.pdf.FormBinding;
 import com.tylersenter.pdf.FormField;
 import com.tylersenter.pdf.configurations.Preferences;
 import com.tylersenter.pdf.reporting.Report;
@@ -21,36 +26,76 @@ public class RequiredValidation extends FieldValidation {
   }
 
   private Level level;
+  private List<String> dependencies;
+  private boolean needsAll;
+  private Condition condition;
 
   public RequiredValidation(Level level, String validMessage, String invalidMessage) {
     super(validMessage, invalidMessage);
     this.level = level;
+    this.dependencies = Collections.emptyList();
   }
 
-  public boolean validate(FormField field, Map<String, FormField> fields, Report report,
-      Preferences preferences) {
-    boolean isEnabled = true;
-    if (hasProperty(DEPENDENT_KEYS_FIELD)) {
-      isEnabled = false;
-      String dependentKeys = (String) getProperty(DEPENDENT_KEYS_FIELD);
-      boolean needsAll = dependentKeys.charAt(0) == '+';
-      String[] dependencies = dependentKeys.substring(needsAll ? 1 : 0).split(",");
-
-      for (String dependency : dependencies) {
-        if (!fields.containsKey(dependency)) {
-          continue;
-        }
-        FormField dependentField = fields.get(dependency);
-
-        if (needsAll) {
-          isEnabled &= dependentField.hasValue();
-        } else {
-          isEnabled |= dependentField.hasValue();
-        }
+  /**
+   * Parse the <code>dependentKeys</code> option: a comma separated list of field names, of which
+   * any must have a value for this validation to apply, or all of them if the list starts with
+   * <code>+</code>.
+   */
+  @Override
+  public void setProperties(Map<String, Object> properties) {
+    super.setProperties(properties);
+
+    dependencies = Collections.emptyList();
+    needsAll = false;
+    condition = null;
+
+    if (!hasProperty(DEPENDENT_KEYS_FIELD)) {
+      return;
+    }
+
+    Object dependentKeys = getProperty(DEPENDENT_KEYS_FIELD);
+    if (!(dependentKeys instanceof String) || ((String) dependentKeys).isEmpty()) {
+      throw new IllegalArgumentException(
+          "The value of " + DEPENDENT_KEYS_FIELD + " must be a comma separated list of fields");
+    }
+
+    String keys = (String) dependentKeys;
+    needsAll = keys.charAt(0) == '+';
+
+    List<String> names = new ArrayList<>();
+    for (String name : keys.substring(needsAll ? 1 : 0).split(",")) {
+      if (!name.trim().isEmpty()) {
+        names.add(name.trim());
       }
     }
+    dependencies = Collections.unmodifiableList(names);
+  }
+
+  public Level getLevel() {
+    return level;
+  }
+
+  /**
+   * @return the fields this validation depends on, empty if it always applies
+   */
+  public List<String> getDependencies() {
+    return dependencies;
+  }
+
+  public boolean isNeedsAll() {
+    return needsAll;
+  }
 
-    if (!isEnabled) {
+  /**
+   * Set the compiled form of the dependencies, done when the plan is compiled.
+   */
+  public void setCondition(Condition condition) {
+    this.condition = condition;
+  }
+
+  public boolean validate(FormField field, Map<String, FormField> fields, Report report,
+      Preferences preferences) {
+    if (!isEnabled(field, fields)) {
       return false;
     }
 
@@ -73,4 +118,25 @@ public class RequiredValidation extends FieldValidation {
     return true;
   }
 
+  private boolean isEnabled(FormField field, Map<String, FormField> fields) {
+    if (dependencies.isEmpty()) {
+      return true;
+    }
+
+    FormBinding binding = field.getBinding();
+    if (condition != null && binding != null) {
+      return binding.isMet(condition);
+    }
+
+    // Not part of a compiled plan, look the dependencies up by name
+    for (String dependency : dependencies) {
+      FormField dependentField = fields.get(dependency);
+      boolean hasValue = dependentField != null && dependentField.hasValue();
+
+      if (hasValue != needsAll) {
+        return !needsAll;
+      }
+    }
+    return needsAll;
+  }
 }
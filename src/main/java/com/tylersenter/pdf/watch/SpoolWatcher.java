@@ -0,0 +1,525 @@
+package com.tylersenter.pdf.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tylersenter.pdf.ValidationPlan;
+import com.tylersenter.pdf.Validator;
+import com.tylersenter.pdf.batch.BatchResult;
+import com.tylersenter.pdf.configurations.Preferences.ReportLevel;
+import com.tylersenter.pdf.loading.FormLoader;
+import com.tylersenter.pdf.reload.PlanReloader;
+import com.tylersenter.pdf.reporting.Report;
+
+/**
+ * Validates PDFs as they are dropped into a spool directory. A file is picked up once its size and
+ * modification time have not changed for the settle delay, so documents still being written are
+ * left alone.
+ *
+ * A picked up file is first moved atomically into a directory of the run under
+ * <code>.processing</code>, under a unique name, which claims it: the file is no longer in the
+ * spool and can never be picked up twice, even by another watcher on the same directory, and a
+ * file of the same name dropped in the meantime is claimed separately. Once validated, its report
+ * is written as <code>name.json</code> and the PDF is moved to <code>processed</code>, or to
+ * <code>failed</code> if it could not be read. Reports are written next to the PDF unless a
+ * results directory is given. Nothing is ever replaced: if <code>name.pdf</code> or
+ * <code>name.json</code> already exists, both are written as <code>name-1</code>,
+ * <code>name-2</code> and so on. Every run holds a lock on a file in its
+ * directory while it is watching; on startup, the files of runs that no longer hold their lock are
+ * returned to the spool, while those of watchers still running are left alone.
+ *
+ * Every document is validated on the plan that was current when its validation started, see
+ * {@link PlanReloader}.
+ */
+public class SpoolWatcher {
+  public static final long DEFAULT_SETTLE_MILLIS = 1000;
+
+  static final String PROCESSING_DIR = ".processing";
+  static final String PROCESSED_DIR = "processed";
+  static final String FAILED_DIR = "failed";
+
+  private static final long POLL_MILLIS = 200;
+  // Locked by the run that owns the directory of claimed files it is in
+  private static final String OWNER_LOCK = ".owner";
+  // A claimed file is named after a random UUID followed by a dash and its original name
+  private static final int CLAIM_PREFIX_LENGTH = 37;
+
+  /**
+   * Receives the result of every document, on a worker thread, or on the watching thread for a
+   * file that could not be claimed. The index of a result is the order in which its file was picked
+   * up.
+   */
+  public static interface ResultListener {
+    public void handle(Path pdf, BatchResult result);
+  }
+
+  private PlanReloader plans;
+  private Path spool;
+  private Path processing;
+  // The directory of the files claimed by the current run
+  private Path claims;
+  private Path processed;
+  private Path failed;
+  private Path results;
+  private int parallelism;
+  private long settleMillis;
+  private FormLoader loader;
+  private ResultListener listener;
+
+  // Files seen in the spool that have not settled yet, only used by the watching thread
+  private Map<Path, Observation> pending;
+  private int claimed;
+  private volatile boolean running;
+
+  /**
+   * @param results the directory to write reports to, or null to write them next to each PDF
+   */
+  public SpoolWatcher(PlanReloader plans, Path spool, Path results, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+
+    this.plans = plans;
+    this.spool = spool;
+    this.processing = spool.resolve(PROCESSING_DIR);
+    this.processed = spool.resolve(PROCESSED_DIR);
+    this.failed = spool.resolve(FAILED_DIR);
+    this.results = results;
+    this.parallelism = parallelism;
+    this.settleMillis = DEFAULT_SETTLE_MILLIS;
+    this.loader = new FormLoader();
+    this.pending = new HashMap<>();
+  }
+
+  public void setFormLoader(FormLoader loader) {
+    this.loader = loader;
+  }
+
+  public void setSettleMillis(long settleMillis) {
+    this.settleMillis = settleMillis;
+  }
+
+  public void setResultListener(ResultListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Watch the spool until {@link #stop()} is called or the thread is interrupted. Documents being
+   * validated when the watch ends are finished before this method returns.
+   */
+  public void run() throws IOException, InterruptedException {
+    if (!Files.isDirectory(spool)) {
+      throw new IOException("The spool directory " + spool + " does not exist");
+    }
+
+    Files.createDirectories(processing);
+    Files.createDirectories(processed);
+    Files.createDirectories(failed);
+    if (results != null) {
+      Files.createDirectories(results);
+    }
+
+    claims = Files.createDirectory(processing.resolve(UUID.randomUUID().toString()));
+    Path ownerLock = claims.resolve(OWNER_LOCK);
+    FileChannel owner = FileChannel.open(ownerLock, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE);
+    try {
+      owner.lock();
+      requeueInterrupted();
+      watch();
+    } finally {
+      // Documents that could not be moved out are returned to the spool by a later run
+      if (isOnlyEntry(claims, ownerLock)) {
+        Files.delete(ownerLock);
+        owner.close();
+        Files.delete(claims);
+      } else {
+        owner.close();
+      }
+    }
+  }
+
+  private void watch() throws IOException, InterruptedException {
+    running = true;
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+
+    try (WatchService watchService = spool.getFileSystem().newWatchService()) {
+      spool.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+      // Anything already waiting, or dropped before the registration took effect
+      scan();
+
+      while (running) {
+        WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+        if (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+              scan();
+            } else {
+              observe(spool.resolve((Path) event.context()));
+            }
+          }
+          key.reset();
+        }
+
+        claimSettled(workers);
+      }
+    } finally {
+      running = false;
+      workers.shutdown();
+      workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public void stop() {
+    running = false;
+  }
+
+  /**
+   * Return the files claimed by runs that ended without finishing them to the spool.
+   */
+  private void requeueInterrupted() throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(processing)) {
+      for (Path entry : entries) {
+        if (entry.equals(claims)) {
+          continue;
+        }
+
+        if (Files.isDirectory(entry)) {
+          requeueAbandoned(entry);
+        } else {
+          requeue(entry);
+        }
+      }
+    }
+  }
+
+  private void requeueAbandoned(Path directory) throws IOException {
+    Path ownerLock = directory.resolve(OWNER_LOCK);
+    FileChannel channel;
+
+    try {
+      channel = FileChannel.open(ownerLock, StandardOpenOption.WRITE);
+    } catch (NoSuchFileException e) {
+      // Being set up or removed by its run
+      return;
+    }
+
+    try {
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        // Owned by another watcher of this process
+        return;
+      }
+      if (lock == null) {
+        // Its run is still watching
+        return;
+      }
+
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+        for (Path file : files) {
+          if (!file.equals(ownerLock)) {
+            requeue(file);
+          }
+        }
+      }
+      Files.delete(ownerLock);
+    } finally {
+      channel.close();
+    }
+    Files.delete(directory);
+  }
+
+  private void requeue(Path file) throws IOException {
+    String name = originalName(file);
+
+    for (int i = 0; !moveNew(file, spool.resolve(withSuffix(name, i))); i++) {
+      // try the next name
+    }
+  }
+
+  private static boolean isOnlyEntry(Path directory, Path file) throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      for (Path entry : entries) {
+        if (!entry.equals(file)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void scan() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(spool)) {
+      for (Path file : files) {
+        observe(file);
+      }
+    }
+  }
+
+  private void observe(Path file) {
+    String name = file.getFileName().toString();
+
+    if (name.startsWith(".") || !name.toLowerCase().endsWith(".pdf")) {
+      return;
+    }
+
+    Observation observation = Observation.of(file);
+    if (observation == null) {
+      pending.remove(file);
+      return;
+    }
+
+    Observation previous = pending.get(file);
+    if (previous == null || !previous.isSameAs(observation)) {
+      pending.put(file, observation);
+    }
+  }
+
+  /**
+   * Claim every pending file that has not changed for the settle delay and hand it to a worker.
+   */
+  private void claimSettled(ExecutorService workers) throws IOException {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<Path, Observation>> iterator = pending.entrySet().iterator();
+
+    while (iterator.hasNext()) {
+      Map.Entry<Path, Observation> entry = iterator.next();
+      Path file = entry.getKey();
+
+      // Writers do not always trigger a modify event for every write, so look again
+      Observation current = Observation.of(file);
+      if (current == null) {
+        iterator.remove();
+        continue;
+      }
+      if (!current.isSameAs(entry.getValue())) {
+        entry.setValue(current);
+        continue;
+      }
+      if (now - entry.getValue().seenAt < settleMillis) {
+        continue;
+      }
+
+      iterator.remove();
+      Path claimed = claims.resolve(UUID.randomUUID() + "-" + file.getFileName());
+      try {
+        Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE);
+      } catch (NoSuchFileException e) {
+        // Claimed by another watcher, or removed
+        continue;
+      } catch (IOException e) {
+        // Left in the spool and picked up again once it changes, the watch goes on
+        if (listener != null) {
+          listener.handle(file, new BatchResult(this.claimed++, file.toFile(), e));
+        }
+        continue;
+      }
+      workers.submit(new ValidationTask(this.claimed++, claimed));
+    }
+  }
+
+  private class ValidationTask implements Runnable {
+    private int index;
+    private Path pdf;
+
+    public ValidationTask(int index, Path pdf) {
+      this.index = index;
+      this.pdf = pdf;
+    }
+
+    public void run() {
+      BatchResult result;
+      String report;
+      String name = originalName(pdf);
+
+      try {
+        ValidationPlan plan = plans.getPlan();
+        Report validated = new Validator(plan, plan.bind(pdf.toFile(), loader)).validateAll();
+        result = new BatchResult(index, spool.resolve(name).toFile(), validated);
+
+        // No report is written at the levels without entries
+        ReportLevel level = plan.getPreferences().getReportLevel();
+        report = level.compareTo(ReportLevel.COMPACT) < 0 ? null : validated.build(level, true);
+        if (report != null && report.isEmpty()) {
+          report = "{}";
+        }
+      } catch (Exception e) {
+        result = new BatchResult(index, spool.resolve(name).toFile(), e);
+
+        ObjectNode error = JsonNodeFactory.instance.objectNode();
+        error.put("error", String.valueOf(e.getMessage()));
+        report = error.toPrettyString();
+      }
+
+      Path target = result.isFailure() ? failed : processed;
+      Path done;
+
+      try {
+        done = finish(pdf, name, target, report);
+      } catch (IOException e) {
+        result = new BatchResult(index, spool.resolve(name).toFile(), e);
+        done = pdf;
+      }
+
+      if (listener != null) {
+        listener.handle(done, result);
+      }
+    }
+  }
+
+  /**
+   * Move a validated PDF to the target directory and write its report, under the first name for
+   * which neither exists yet. The report is written completely before it appears.
+   *
+   * @param report the report, or null to write none
+   * @return where the PDF was moved to
+   */
+  private Path finish(Path pdf, String name, Path target, String report) throws IOException {
+    Path reports = results != null ? results : target;
+    Path temporary = null;
+
+    try {
+      if (report != null) {
+        temporary = Files.createTempFile(reports, ".report-", ".tmp");
+        Files.write(temporary, report.getBytes(StandardCharsets.UTF_8));
+        // Temporary files are only readable by their owner
+        if (Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+          Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-r--r--"));
+        }
+      }
+
+      for (int i = 0;; i++) {
+        String pdfName = withSuffix(name, i);
+        Path done = target.resolve(pdfName);
+        Path reportFile = reports.resolve(pdfName.substring(0, pdfName.length() - 4) + ".json");
+
+        if (Files.exists(done)) {
+          continue;
+        }
+        if (temporary != null && !moveNew(temporary, reportFile)) {
+          continue;
+        }
+        if (moveNew(pdf, done)) {
+          return done;
+        }
+        if (temporary != null) {
+          // Taken in the meantime, try the next name with the same report
+          moveNew(reportFile, temporary);
+        }
+      }
+    } finally {
+      if (temporary != null) {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+
+  /**
+   * Move a file to a path that does not exist yet. Linking fails atomically if the path exists,
+   * where a rename would replace it.
+   *
+   * @return false if the target already exists
+   */
+  private static boolean moveNew(Path source, Path target) throws IOException {
+    try {
+      try {
+        Files.createLink(target, source);
+      } catch (UnsupportedOperationException e) {
+        Files.move(source, target);
+        return true;
+      }
+    } catch (FileAlreadyExistsException e) {
+      return false;
+    }
+
+    Files.delete(source);
+    return true;
+  }
+
+  /**
+   * @return the name a claimed file had in the spool
+   */
+  private static String originalName(Path claimed) {
+    String name = claimed.getFileName().toString();
+
+    if (name.length() > CLAIM_PREFIX_LENGTH && name.charAt(CLAIM_PREFIX_LENGTH - 1) == '-') {
+      return name.substring(CLAIM_PREFIX_LENGTH);
+    }
+    return name;
+  }
+
+  /**
+   * @return the PDF name with <code>-i</code> before its extension, or unchanged for 0
+   */
+  private static String withSuffix(String name, int i) {
+    if (i == 0) {
+      return name;
+    }
+
+    int extension = name.length() - ".pdf".length();
+    return name.substring(0, extension) + "-" + i + name.substring(extension);
+  }
+
+  private static class Observation {
+    private long size;
+    private long modified;
+    private long seenAt;
+
+    private Observation(long size, long modified, long seenAt) {
+      this.size = size;
+      this.modified = modified;
+      this.seenAt = seenAt;
+    }
+
+    /**
+     * @return the current state of the file, or null if it is gone or not a regular file
+     */
+    public static Observation of(Path file) {
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        if (!attributes.isRegularFile()) {
+          return null;
+        }
+        return new Observation(attributes.size(), attributes.lastModifiedTime().toMillis(),
+            System.currentTimeMillis());
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    public boolean isSameAs(Observation other) {
+      return size == other.size && modified == other.modified;
+    }
+  }
+}